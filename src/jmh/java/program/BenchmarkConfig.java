@@ -0,0 +1,44 @@
+package program;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/*
+Вспомогательные методы бенчмарков: временная папка и конфигурация для сервисов.
+*/
+public final class BenchmarkConfig {
+    private BenchmarkConfig() {
+    }
+
+    // Создаёт временную папку и в ней config.txt с переданными строками "KEY=VALUE"
+    public static ConfigService createConfig(Path folder, String... lines) {
+        try {
+            Path config = folder.resolve("config.txt");
+            Files.write(config, java.util.Arrays.asList(lines));
+            return new ConfigService(config.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Path createTempFolder(String prefix) {
+        try {
+            return Files.createTempDirectory(prefix);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Рекурсивно удаляет временную папку после бенчмарка
+    public static void deleteFolder(Path folder) {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
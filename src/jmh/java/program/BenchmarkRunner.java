@@ -0,0 +1,30 @@
+package program;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+Точка входа бенчмарков.
+Принимает обычные параметры командной строки JMH (фильтр, -p linkCount=10000, -t и т.д.),
+всегда включает профилировщик GC (частота аллокаций) и пишет результаты в JSON,
+чтобы прогоны можно было сравнивать между собой.
+Пример: java -jar target/benchmarks.jar LinkServiceBenchmark -p linkCount=10000 -rff result.json
+*/
+public class BenchmarkRunner {
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(commandLine.getResult().orElse(DEFAULT_RESULT_FILE))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,109 @@
+package program;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/*
+Бенчмарки популярных ссылок (HeavyHitters) на потоке переходов с распределением Ципфа
+по codeCount кодам: скорость учёта перехода и запроса top-K.
+Точность и объём памяти печатаются в конце прогона: доля точного top-K в ответе (recall),
+средняя относительная ошибка оценок и getSizeBytes() для заданной ширины sketchWidth.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx4g"})
+public class HeavyHittersBenchmark {
+    private static final long[] WINDOWS_MS = {
+            TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(5), TimeUnit.MINUTES.toMillis(60)};
+    private static final int EVENT_COUNT = 1 << 20;
+    private static final int TOP_SIZE = 100;
+
+    @Param({"100000", "1000000"})
+    public int codeCount;
+
+    @Param({"1024", "4096"})
+    public int sketchWidth;
+
+    private String[] events;
+    private HeavyHitters heavyHitters;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        events = zipfEvents(codeCount, EVENT_COUNT, 1.1, new Random(42));
+        heavyHitters = new HeavyHitters(WINDOWS_MS, TOP_SIZE, sketchWidth);
+        for (String code : events) {
+            heavyHitters.add(code, System.currentTimeMillis());
+        }
+    }
+
+    /*
+    Точность: весь поток укладывается в окно 60 минут, ответ сравнивается с точным подсчётом.
+    */
+    @TearDown(Level.Trial)
+    public void reportAccuracy() {
+        long now = System.currentTimeMillis();
+        HeavyHitters measured = new HeavyHitters(WINDOWS_MS, TOP_SIZE, sketchWidth);
+        Map<String, Long> exact = new HashMap<>();
+        for (int i = 0; i < events.length; i++) {
+            // События равномерно за последние 50 минут
+            long timeMs = now - TimeUnit.MINUTES.toMillis(50) + (long) i * TimeUnit.MINUTES.toMillis(50) / events.length;
+            measured.add(events[i], timeMs);
+            exact.merge(events[i], 1L, Long::sum);
+        }
+        List<Map.Entry<String, Long>> exactTop = new ArrayList<>(exact.entrySet());
+        exactTop.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < Math.min(TOP_SIZE, exactTop.size()); i++) {
+            expected.add(exactTop.get(i).getKey());
+        }
+
+        int found = 0;
+        double errorSum = 0;
+        List<HeavyHitters.Entry> top = measured.top(WINDOWS_MS[2], TOP_SIZE, now);
+        for (HeavyHitters.Entry entry : top) {
+            if (expected.contains(entry.getShortCode())) {
+                found++;
+            }
+            long actual = exact.get(entry.getShortCode());
+            errorSum += (double) (entry.getClicks() - actual) / actual;
+        }
+        System.out.printf("%nHeavyHitters codeCount=%d sketchWidth=%d: recall@%d=%.3f, средняя ошибка=%.4f, память=%d КБ%n",
+                codeCount, sketchWidth, TOP_SIZE, (double) found / expected.size(),
+                top.isEmpty() ? 0 : errorSum / top.size(), measured.getSizeBytes() / 1024);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void add_1t() {
+        heavyHitters.add(events[next++ & (EVENT_COUNT - 1)], System.currentTimeMillis());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<HeavyHitters.Entry> top_1t() {
+        return heavyHitters.top(WINDOWS_MS[1], 10, System.currentTimeMillis());
+    }
+
+    // Поток кодов с распределением Ципфа с показателем exponent
+    private static String[] zipfEvents(int codeCount, int eventCount, double exponent, Random random) {
+        double[] cumulative = new double[codeCount];
+        double sum = 0;
+        for (int i = 0; i < codeCount; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        String[] events = new String[eventCount];
+        for (int i = 0; i < eventCount; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            int rank = index >= 0 ? index : Math.min(-index - 1, codeCount - 1);
+            events[i] = SyntheticLinkRepository.codeOf(rank);
+        }
+        return events;
+    }
+}
@@ -0,0 +1,115 @@
+package program;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+Общий бенчмарк хранилищ ссылок (LinkRepository): одни и те же операции
+на всех реализациях — memory, file, log и slot.
+Хранилище заполняется linkCount ссылками, затем измеряются чтение по коду, перезапись ссылки,
+атомарное увеличение счётчика переходов и перебор ссылок владельца.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx4g"})
+public class LinkRepositoryBenchmark {
+    @Param({"1000", "10000"})
+    public int linkCount;
+
+    @Param({"memory", "file", "log", "slot"})
+    public String backend;
+
+    private Path folder;
+    private LinkRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        folder = BenchmarkConfig.createTempFolder("repository-bench");
+        repository = createRepository(backend, folder);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < linkCount; i++) {
+            repository.put(linkOf(i, now));
+        }
+        repository.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.close();
+        BenchmarkConfig.deleteFolder(folder);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Link get_1t() {
+        return repository.get(randomCode());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Link get_mt() {
+        return repository.get(randomCode());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void put_1t() {
+        Link link = linkOf(ThreadLocalRandom.current().nextInt(linkCount), System.currentTimeMillis());
+        link.setMaxClicks(ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE));
+        repository.put(link);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long incrementClicks_1t() {
+        return repository.incrementClicks(randomCode(), 1);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long incrementClicks_mt() {
+        return repository.incrementClicks(randomCode(), 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void forEachByOwner_1t(Blackhole blackhole) {
+        int owner = ThreadLocalRandom.current().nextInt(linkCount);
+        repository.forEachByOwner(SyntheticLinkRepository.ownerOf(owner), blackhole::consume);
+    }
+
+    private String randomCode() {
+        return SyntheticLinkRepository.codeOf(ThreadLocalRandom.current().nextInt(linkCount));
+    }
+
+    private static LinkRepository createRepository(String backend, Path folder) {
+        switch (backend) {
+            case "memory":
+                return new InMemoryLinkRepository();
+            case "log":
+                return new LogLinkRepository(folder.resolve("log").toString(), 64L << 20, 60_000);
+            case "slot":
+                return new SlotLinkRepository(folder.resolve("slots").toString(), 64L << 20);
+            default:
+                return new FileLinkRepository(folder.resolve("links").toString());
+        }
+    }
+
+    private static Link linkOf(int i, long now) {
+        Link link = new Link();
+        link.setShortCode(SyntheticLinkRepository.codeOf(i));
+        link.setOwnerUuid(SyntheticLinkRepository.ownerOf(i));
+        link.setOriginalUrl("https://example.com/page/" + i);
+        link.setCreateTimeMs(now);
+        link.setTlMinutes(1440);
+        link.setMaxClicks(Long.MAX_VALUE);
+        return link;
+    }
+}
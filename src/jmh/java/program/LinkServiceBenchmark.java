@@ -0,0 +1,156 @@
+package program;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+Бенчмарки LinkService на синтетическом наборе из linkCount ссылок.
+У каждого сценария есть однопоточный (_1t) и многопоточный (_mt, по числу ядер) вариант.
+Режимы: пропускная способность и выборка времени (перцентили задержки).
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx12g"})
+public class LinkServiceBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int linkCount;
+
+    private Path folder;
+    private LinkService linkService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        folder = BenchmarkConfig.createTempFolder("link-bench");
+        ConfigService configService = BenchmarkConfig.createConfig(folder,
+                "WRITE_BEHIND_FLUSH_MS=1000",
+                "EXPIRY_SWEEP_INTERVAL_MS=1000",
+                "SHORT_CODE_ALLOCATOR=random",
+                "BLOOM_FILTER_FILE=" + folder.resolve("links.bloom"),
+                "WAL_PATH=" + folder.resolve("wal"),
+                "ANALYTICS_FILE=" + folder.resolve("clicks.dat"),
+                "LINK_SNAPSHOT_FILE=" + folder.resolve("links.snapshot"));
+        linkService = new LinkService(new SyntheticLinkRepository(linkCount), configService);
+        linkService.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        linkService.close();
+        BenchmarkConfig.deleteFolder(folder);
+    }
+
+    // Случайный код из набора для текущего потока
+    private String randomCode() {
+        return SyntheticLinkRepository.codeOf(ThreadLocalRandom.current().nextInt(linkCount));
+    }
+
+    private Link createLink() {
+        return linkService.createLink("bench-owner", "https://example.com/new", 60, 1440, 10, 5);
+    }
+
+    private Link loadLink() {
+        return linkService.loadLink(randomCode());
+    }
+
+    // Поиск случайного кода, которого нет среди ссылок (так перебирают коды боты)
+    private Link loadMissingLink() {
+        return linkService.loadLink(Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36));
+    }
+
+    private void saveLink() {
+        Link link = linkService.loadLink(randomCode());
+        link.setMaxClicks(Long.MAX_VALUE);
+        linkService.saveLinkToFile(link);
+    }
+
+    // Полный путь перехода из goToLink: поиск -> проверка срока и лимита -> увеличение счётчика
+    private ClickStatus redirect() {
+        return linkService.registerClick(linkService.loadLink(randomCode()));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Link createLink_1t() {
+        return createLink();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Link createLink_mt() {
+        return createLink();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Link loadLink_1t() {
+        return loadLink();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Link loadLink_mt() {
+        return loadLink();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Link loadMissingLink_1t() {
+        return loadMissingLink();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Link loadMissingLink_mt() {
+        return loadMissingLink();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void saveLinkToFile_1t() {
+        saveLink();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void saveLinkToFile_mt() {
+        saveLink();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int cleanupExpiredLinks_1t() {
+        return linkService.cleanupExpiredLinks();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int cleanupExpiredLinks_mt() {
+        return linkService.cleanupExpiredLinks();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ClickStatus redirect_1t() {
+        return redirect();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ClickStatus redirect_mt() {
+        return redirect();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void findByOwner_1t(Blackhole blackhole) {
+        blackhole.consume(linkService.findByOwner(SyntheticLinkRepository.ownerOf(
+                ThreadLocalRandom.current().nextInt(linkCount))));
+    }
+}
@@ -0,0 +1,71 @@
+package program;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+Бенчмарки SessionManager на sessionCount активных сессиях: проверка токена
+(на каждый авторизованный запрос) и создание сессии (вход) при заполненном лимите.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx4g"})
+public class SessionManagerBenchmark {
+    @Param({"10000", "500000"})
+    public int sessionCount;
+
+    private SessionManager sessionManager;
+    private String[] tokens;
+    private User user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionManager = new SessionManager(TimeUnit.HOURS.toMillis(1), TimeUnit.HOURS.toMillis(12),
+                sessionCount, TimeUnit.MINUTES.toMillis(1));
+        sessionManager.start();
+        user = new User("uuid", "login", "secret");
+        tokens = new String[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            tokens[i] = sessionManager.createSession(user);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionManager.close();
+    }
+
+    private User getUser() {
+        return sessionManager.getUser(tokens[ThreadLocalRandom.current().nextInt(sessionCount)]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public User getUser_1t() {
+        return getUser();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public User getUser_mt() {
+        return getUser();
+    }
+
+    // Вход при заполненном лимите: каждая новая сессия вытесняет самую старую
+    @Benchmark
+    @Threads(1)
+    public String createSession_1t() {
+        return sessionManager.createSession(user);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String createSession_mt() {
+        return sessionManager.createSession(user);
+    }
+}
@@ -0,0 +1,61 @@
+package program;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+Бенчмарки выдачи кодов ссылок (замена прежнего generateShortCode).
+random проверяет существование кода по индексу из linkCount кодов,
+sequential арендует блоки номеров в файле.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx12g"})
+public class ShortCodeAllocatorBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int linkCount;
+
+    @Param({"random", "sequential"})
+    public String strategy;
+
+    private Path folder;
+    private ShortCodeAllocator allocator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        folder = BenchmarkConfig.createTempFolder("code-bench");
+        if ("sequential".equals(strategy)) {
+            allocator = new SequentialCodeAllocator(folder.resolve("lease.dat").toString(), 10_000);
+        } else {
+            Set<String> existing = ConcurrentHashMap.newKeySet(linkCount);
+            for (int i = 0; i < linkCount; i++) {
+                existing.add(SyntheticLinkRepository.codeOf(i));
+            }
+            allocator = new RandomCodeAllocator(existing::contains);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkConfig.deleteFolder(folder);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String nextCode_1t() {
+        return allocator.nextCode();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String nextCode_mt() {
+        return allocator.nextCode();
+    }
+}
@@ -0,0 +1,76 @@
+package program;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/*
+Хранилище для бенчмарков: при старте отдаёт linkCount сгенерированных ссылок,
+а запись только подсчитывает, не обращаясь к диску.
+Так бенчмарки LinkService измеряют сам сервис, а не файловую систему.
+*/
+public class SyntheticLinkRepository implements LinkRepository {
+    private final int linkCount;
+    private final AtomicLong writes = new AtomicLong();
+
+    public SyntheticLinkRepository(int linkCount) {
+        this.linkCount = linkCount;
+    }
+
+    // Код i-й синтетической ссылки
+    public static String codeOf(int i) {
+        return "b" + Integer.toString(i, 36);
+    }
+
+    // Владелец i-й синтетической ссылки (по 100 ссылок на владельца)
+    public static String ownerOf(int i) {
+        return "owner-" + (i / 100);
+    }
+
+    @Override
+    public void forEach(Consumer<Link> consumer) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < linkCount; i++) {
+            Link link = new Link();
+            link.setShortCode(codeOf(i));
+            link.setOwnerUuid(ownerOf(i));
+            link.setOriginalUrl("https://example.com/page/" + i);
+            link.setCreateTimeMs(now);
+            link.setTlMinutes(1440);
+            link.setMaxClicks(Long.MAX_VALUE);
+            consumer.accept(link);
+        }
+    }
+
+    @Override
+    public Link get(String shortCode) {
+        return null;
+    }
+
+    @Override
+    public void put(Link link) {
+        writes.incrementAndGet();
+    }
+
+    @Override
+    public long incrementClicks(String shortCode, long delta) {
+        writes.incrementAndGet();
+        return -1;
+    }
+
+    @Override
+    public void delete(String shortCode) {
+        writes.incrementAndGet();
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    public long getWrites() {
+        return writes.get();
+    }
+}
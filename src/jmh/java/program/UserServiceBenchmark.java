@@ -0,0 +1,106 @@
+package program;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Бенчмарки UserService на синтетическом users.txt из userCount пользователей.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx12g"})
+public class UserServiceBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int userCount;
+
+    private Path folder;
+    private UserService userService;
+    private String[] uuids;
+    private final AtomicLong newUsers = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        folder = BenchmarkConfig.createTempFolder("user-bench");
+        ConfigService configService = BenchmarkConfig.createConfig(folder, "USERS_COMPACTION_INTERVAL_MS=60000",
+                "USER_SNAPSHOT_FILE=" + folder.resolve("users.snapshot"));
+        Path usersFile = folder.resolve("users.txt");
+        uuids = new String[userCount];
+        try (BufferedWriter bw = Files.newBufferedWriter(usersFile)) {
+            for (int i = 0; i < userCount; i++) {
+                uuids[i] = UUID.randomUUID().toString();
+                bw.write(uuids[i] + ";user" + i + ";secret");
+                bw.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        userService = new UserService(usersFile.toString(), configService);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        userService.close();
+        BenchmarkConfig.deleteFolder(folder);
+    }
+
+    private User findByLogin() {
+        return userService.findByLogin("USER" + ThreadLocalRandom.current().nextInt(userCount));
+    }
+
+    private User findByUuid() {
+        return userService.findByUuid(uuids[ThreadLocalRandom.current().nextInt(userCount)]);
+    }
+
+    private boolean addUser() {
+        long n = newUsers.incrementAndGet();
+        return userService.addUser(new User("new-" + n, "newuser" + n, "secret"));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public User findByLogin_1t() {
+        return findByLogin();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public User findByLogin_mt() {
+        return findByLogin();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public User findByUuid_1t() {
+        return findByUuid();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public User findByUuid_mt() {
+        return findByUuid();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean addUser_1t() {
+        return addUser();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean addUser_mt() {
+        return addUser();
+    }
+}
@@ -0,0 +1,107 @@
+package program;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+Служебный HTTP-сервер, доступный только локально (127.0.0.1).
+GET /metrics — метрики в текстовом формате Prometheus.
+GET /admin/top?window=5&k=10 — самые популярные ссылки за последние window минут
+(строки "код число_переходов"), если отслеживаются.
+*/
+public class AdminServer {
+    private static final int DEFAULT_TOP_SIZE = 10;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final HeavyHitters topLinks;
+
+    // topLinks может быть null — тогда /admin/top отвечает 404
+    public AdminServer(int port, HeavyHitters topLinks) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.topLinks = topLinks;
+        server.createContext("/metrics", exchange -> sendText(exchange, Metrics.toPrometheusText()));
+        server.createContext("/admin/top", this::handleTop);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Служебный HTTP-сервер запущен на 127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /*
+    Метод отвечает на /admin/top. Без параметра window берётся самое короткое окно,
+    без k — DEFAULT_TOP_SIZE ссылок.
+    */
+    private void handleTop(HttpExchange exchange) throws IOException {
+        if (topLinks == null) {
+            sendText(exchange, 404, "Популярные ссылки не отслеживаются\n");
+            return;
+        }
+        long[] windowsMs = topLinks.getWindowsMs();
+        long windowMs = windowsMs[0];
+        int limit = DEFAULT_TOP_SIZE;
+        String query = exchange.getRequestURI().getRawQuery();
+        try {
+            if (query != null) {
+                for (String parameter : query.split("&")) {
+                    if (parameter.startsWith("window=")) {
+                        windowMs = TimeUnit.MINUTES.toMillis(Long.parseLong(parameter.substring("window=".length())));
+                    } else if (parameter.startsWith("k=")) {
+                        limit = Integer.parseInt(parameter.substring("k=".length()));
+                    }
+                }
+            }
+            List<HeavyHitters.Entry> top = topLinks.top(windowMs, limit, System.currentTimeMillis());
+            StringBuilder text = new StringBuilder();
+            text.append("# window_minutes ").append(TimeUnit.MILLISECONDS.toMinutes(windowMs)).append('\n');
+            for (HeavyHitters.Entry entry : top) {
+                text.append(entry.getShortCode()).append(' ').append(entry.getClicks()).append('\n');
+            }
+            sendText(exchange, text.toString());
+        } catch (IllegalArgumentException e) {
+            StringBuilder text = new StringBuilder("Неверный запрос: ").append(e.getMessage()).append("\nДоступные окна, мин:");
+            for (long available : windowsMs) {
+                text.append(' ').append(TimeUnit.MILLISECONDS.toMinutes(available));
+            }
+            sendText(exchange, 400, text.append('\n').toString());
+        }
+    }
+
+    // Отправляет текстовый ответ 200
+    static void sendText(HttpExchange exchange, String text) throws IOException {
+        sendText(exchange, 200, text);
+    }
+
+    static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        try (exchange) {
+            byte[] body = text.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
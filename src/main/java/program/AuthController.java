@@ -1,27 +1,68 @@
 package program;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Scanner;
 import java.util.UUID;
 
 
 /*
-Класс, отвечающий за взаимодействие с пользователем
+Класс, отвечающий за взаимодействие с пользователем.
+Авторизация хранится в сессиях SessionManager: вход выдаёт токен, по которому определяется пользователь,
+поэтому один контроллер может обслуживать много клиентов (login/authenticate/logout).
+Консольное меню хранит токен своей сессии в currentToken.
 */
 public class AuthController {
     // Объявляем поля класса
-    private final UserService userService; // Cервис для работы с пользователями
-    private final Scanner scanner;         // Для чтения ввода пользователя
-    private User currentUser;              // Текущий авторизованный пользователь
+    private final UserService userService;       // Cервис для работы с пользователями
+    private final SessionManager sessionManager; // Сессии авторизованных пользователей
+    private final Scanner scanner;               // Для чтения ввода пользователя
+    private String currentToken;                 // Токен сессии консольного пользователя
 
     // Конструктор класса
-    public AuthController(UserService userService) {
+    public AuthController(UserService userService, SessionManager sessionManager) {
         this.userService = userService;
+        this.sessionManager = sessionManager;
         this.scanner = new Scanner(System.in);
-        this.currentUser = null;
+        this.currentToken = null;
     }
 
+    /*
+    Метод возвращает пользователя консольной сессии или null, если никто не авторизован.
+    Если сессия истекла, сообщает об этом и сбрасывает токен.
+    */
     public User getCurrentUser() {
-        return currentUser;
+        if (currentToken == null) {
+            return null;
+        }
+        User user = sessionManager.getUser(currentToken);
+        if (user == null) {
+            System.out.println("Сессия истекла, авторизуйтесь снова.");
+            currentToken = null;
+        }
+        return user;
+    }
+
+    /*
+    Метод входа по UUID или логину и паролю: возвращает токен новой сессии или null,
+    если пользователь не найден или пароль неверный.
+    */
+    public String login(String userNameOrUuid, String password) {
+        User user = findUser(userNameOrUuid);
+        if (user == null || !passwordMatches(user, password)) {
+            return null;
+        }
+        return sessionManager.createSession(user);
+    }
+
+    // Пользователь по токену сессии или null
+    public User authenticate(String token) {
+        return sessionManager.getUser(token);
+    }
+
+    // Завершение сессии по токену
+    public boolean logout(String token) {
+        return sessionManager.invalidate(token);
     }
 
     /*
@@ -52,14 +93,19 @@ public class AuthController {
 
         // Создаём и сохраняем пользователя
         User newUser = new User(uuid, login, password);
-        userService.addUser(newUser);
+        if (!userService.addUser(newUser)) {
+            // Логин мог занять другой клиент между проверкой и сохранением
+            System.out.println("Пользователь с таким логином уже существует!");
+            return;
+        }
 
         System.out.println("Пользователь создан!");
         System.out.println("Ваш UUID: " + uuid);
         System.out.println("Ваш пароль: " + password);
 
         // Автоматически авторизуемся
-        currentUser = newUser;
+        sessionManager.invalidate(currentToken);
+        currentToken = sessionManager.createSession(newUser);
         System.out.println("Вы автоматически авторизованы как " + newUser.getLogin());
     }
 
@@ -74,38 +120,50 @@ public class AuthController {
         System.out.print("Введите пароль: ");
         String password = scanner.nextLine();
 
-        // Сначала ищем по UUID
-        User user = userService.findByUuid(userNameOrUUID);
-        // Если не нашли – ищем по логину
-        if (user == null) {
-            user = userService.findByLogin(userNameOrUUID);
-        }
-
+        User user = findUser(userNameOrUUID);
         if (user == null) {
             System.out.println("Пользователь не найден!");
             return;
         }
 
-        if (!user.getPassword().equals(password)) {
+        if (!passwordMatches(user, password)) {
             System.out.println("Неверный пароль!");
             return;
         }
 
         // Авторизация успешна
-        currentUser = user;
+        sessionManager.invalidate(currentToken);
+        currentToken = sessionManager.createSession(user);
         System.out.println("Добро пожаловать, " + user.getLogin() + "!");
     }
 
+    // Сначала ищем по UUID, если не нашли – по логину
+    private User findUser(String userNameOrUuid) {
+        User user = userService.findByUuid(userNameOrUuid);
+        if (user == null) {
+            user = userService.findByLogin(userNameOrUuid);
+        }
+        return user;
+    }
+
+    // Сравнение пароля за время, не зависящее от совпавшего префикса
+    private static boolean passwordMatches(User user, String password) {
+        return MessageDigest.isEqual(user.getPassword().getBytes(StandardCharsets.UTF_8),
+                password.getBytes(StandardCharsets.UTF_8));
+    }
+
     /*
     Метод выхода из программы
     */
     public void logoutUser() {
+        User currentUser = getCurrentUser();
         if (currentUser == null) {
             System.out.println("Никто не авторизован.");
             return;
         }
+        sessionManager.invalidate(currentToken);
+        currentToken = null;
         System.out.println("Пользователь " + currentUser.getLogin() + " вышел из системы.");
-        currentUser = null;
     }
 
     /*
@@ -0,0 +1,169 @@
+package program;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/*
+Фильтр Блума по кодам ссылок: отвечает "кода точно нет" или "код, возможно, есть".
+Позволяет отбросить случайный несуществующий код без обращения к кешу и диску.
+Добавление безопасно из нескольких потоков, удаление не поддерживается —
+для этого фильтр периодически строится заново по живым ссылкам.
+*/
+public class BloomFilter {
+    private static final int MAGIC = 0x424C4F4D; // "BLOM"
+    private static final int VERSION = 1;
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+    private final LongAdder insertions = new LongAdder();
+
+    /*
+    Размер фильтра подбирается по ожидаемому числу кодов и допустимой доле ложных срабатываний:
+    m = -n * ln(p) / ln(2)^2 бит, k = m / n * ln(2) хеш-функций.
+    */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int longs = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) / 64));
+        this.bits = new AtomicLongArray(longs);
+        this.bitCount = (long) longs * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.expectedInsertions = n;
+    }
+
+    private BloomFilter(AtomicLongArray bits, int hashCount, long expectedInsertions, long insertions) {
+        this.bits = bits;
+        this.bitCount = (long) bits.length() * 64;
+        this.hashCount = hashCount;
+        this.expectedInsertions = expectedInsertions;
+        this.insertions.add(insertions);
+    }
+
+    public void put(String shortCode) {
+        long hash = hash(shortCode);
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            // Бит уже установлен — CAS не нужен
+            if ((bits.get(index) & mask) == 0) {
+                bits.getAndAccumulate(index, mask, (current, m) -> current | m);
+            }
+        }
+        insertions.increment();
+    }
+
+    public boolean mightContain(String shortCode) {
+        long hash = hash(shortCode);
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Сколько кодов добавлено в фильтр
+    public long getInsertions() {
+        return insertions.sum();
+    }
+
+    // На сколько кодов рассчитан фильтр (при превышении растёт доля ложных срабатываний)
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    // Размер фильтра в байтах
+    public long getSizeBytes() {
+        return bitCount / 8;
+    }
+
+    /*
+    Метод сохраняет фильтр в файл: заголовок, биты и контрольная сумма CRC32.
+    Файл перезаписывается атомарно через временный.
+    */
+    public void writeTo(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(hashCount);
+            out.writeLong(expectedInsertions);
+            out.writeLong(getInsertions());
+            out.writeInt(bits.length());
+            for (int i = 0; i < bits.length(); i++) {
+                out.writeLong(bits.get(i));
+            }
+            // Сама контрольная сумма в неё не входит
+            out.writeLong(crc.getValue());
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /*
+    Метод читает фильтр из файла.
+    Возвращает null, если файла нет, он повреждён или записан в другом формате.
+    */
+    public static BloomFilter readFrom(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            int hashCount = in.readInt();
+            long expectedInsertions = in.readLong();
+            long insertions = in.readLong();
+            int longs = in.readInt();
+            if (hashCount <= 0 || longs <= 0) {
+                return null;
+            }
+            AtomicLongArray bits = new AtomicLongArray(longs);
+            for (int i = 0; i < longs; i++) {
+                bits.set(i, in.readLong());
+            }
+            long expectedCrc = crc.getValue();
+            if (in.readLong() != expectedCrc) {
+                return null;
+            }
+            return new BloomFilter(bits, hashCount, expectedInsertions, insertions);
+        } catch (IOException e) {
+            System.out.println("Ошибка чтения фильтра кодов " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 64-битный хеш кода (FNV-1a с перемешиванием из MurmurHash3)
+    private static long hash(String shortCode) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < shortCode.length(); i++) {
+            h ^= shortCode.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
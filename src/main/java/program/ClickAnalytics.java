@@ -0,0 +1,404 @@
+package program;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/*
+История переходов по ссылкам: сколько переходов было по ссылке и по всем ссылкам владельца
+за каждую минуту, час и день.
+
+Переход публикует событие (код, владелец, время) в кольцевой буфер фиксированного размера.
+Публикация не выделяет память и не блокируется: место в буфере занимается одним CAS,
+а если обработчик отстал и буфер заполнен, событие отбрасывается и учитывается в метрике.
+Фоновый поток разбирает буфер, складывает события в счётчики по интервалам и раз
+в flushMs дописывает поминутные итоги в конец файла истории. При старте файл читается заново.
+Тот же поток обновляет самые популярные ссылки за последние минуты (HeavyHitters), если они заданы.
+*/
+public class ClickAnalytics {
+    private static final Metrics.Counter EVENTS =
+            Metrics.counter("click_analytics_events_total", "События переходов, учтённые в истории");
+    private static final Metrics.Counter DROPPED =
+            Metrics.counter("click_analytics_dropped_total", "События переходов, отброшенные из-за заполненного буфера");
+    private static final Metrics.Counter BYTES_WRITTEN =
+            Metrics.counter("click_analytics_bytes_written_total", "Байты, записанные в файл истории переходов");
+
+    // Сколько событий разбирается за один захват блокировки
+    private static final int MAX_BATCH = 4096;
+    // Пауза обработчика, когда буфер пуст
+    private static final long IDLE_PARK_NS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long PRUNE_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+
+    // Кольцевой буфер: поля события лежат в заранее выделенных массивах.
+    // published[i] == seq + 1 означает, что событие с номером seq записано в ячейку i
+    private final int mask;
+    private final String[] eventCodes;
+    private final String[] eventOwners;
+    private final long[] eventTimes;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+
+    // Счётчики по интервалам; изменяет только фоновый поток, читают запросы
+    private final ReadWriteLock rollupLock = new ReentrantReadWriteLock();
+    private final Map<String, ClickSeries> byLink = new HashMap<>();
+    private final Map<String, ClickSeries> byOwner = new HashMap<>();
+    private final long minuteRetentionMs;
+    // Самые популярные ссылки за скользящие окна (null — не отслеживаются)
+    private final HeavyHitters topLinks;
+
+    // Поминутные итоги, ещё не записанные в файл (только фоновый поток)
+    private final Map<BucketKey, Long> unflushed = new HashMap<>();
+    private final Path file;
+    private final FileChannel channel;
+    private final long flushMs;
+
+    private final Thread consumer;
+    private volatile boolean closed;
+
+    public ClickAnalytics(String filePath, int bufferSize, long flushMs, long minuteRetentionMs,
+                          HeavyHitters topLinks) {
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.mask = capacity - 1;
+        this.eventCodes = new String[capacity];
+        this.eventOwners = new String[capacity];
+        this.eventTimes = new long[capacity];
+        this.published = new AtomicLongArray(capacity);
+        this.flushMs = flushMs;
+        this.minuteRetentionMs = minuteRetentionMs;
+        this.topLinks = topLinks;
+        this.file = Paths.get(filePath);
+        try {
+            load();
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка открытия файла истории переходов " + filePath, e);
+        }
+
+        this.consumer = new Thread(this::consumeLoop, "click-analytics");
+        consumer.setDaemon(true);
+    }
+
+    // Запускает фоновую обработку событий; вызывается после создания объекта
+    public void start() {
+        Metrics.gauge("click_analytics_backlog", "События переходов, ожидающие обработки",
+                this, analytics -> analytics.claimed.get() - analytics.consumed);
+        consumer.start();
+    }
+
+    /*
+    Метод публикует событие перехода. Не выделяет память и не ждёт обработчика.
+    Возвращает false, если буфер заполнен и событие отброшено.
+    */
+    public boolean publish(String shortCode, String ownerUuid, long timeMs) {
+        long seq;
+        do {
+            seq = claimed.get();
+            if (seq - consumed > mask) {
+                DROPPED.increment();
+                return false;
+            }
+        } while (!claimed.compareAndSet(seq, seq + 1));
+        int index = (int) (seq & mask);
+        eventCodes[index] = shortCode;
+        eventOwners[index] = ownerUuid;
+        eventTimes[index] = timeMs;
+        published.setRelease(index, seq + 1);
+        return true;
+    }
+
+    /*
+    Метод возвращает число переходов по ссылке по интервалам granularity в промежутке [fromMs, toMs):
+    начало интервала -> число переходов. Интервалы без переходов в ответ не попадают.
+    События, ещё не разобранные фоновым потоком, не учитываются.
+    */
+    public SortedMap<Long, Long> clicksByLink(String shortCode, long fromMs, long toMs, ClickGranularity granularity) {
+        return query(byLink, shortCode, fromMs, toMs, granularity);
+    }
+
+    // То же по всем ссылкам владельца
+    public SortedMap<Long, Long> clicksByOwner(String ownerUuid, long fromMs, long toMs, ClickGranularity granularity) {
+        return query(byOwner, ownerUuid, fromMs, toMs, granularity);
+    }
+
+    // Самые популярные ссылки (null, если не отслеживаются)
+    public HeavyHitters getTopLinks() {
+        return topLinks;
+    }
+
+    public long getDroppedCount() {
+        return DROPPED.get();
+    }
+
+    // Останавливает фоновый поток, разбирает оставшиеся события и записывает их в файл
+    public void close() {
+        closed = true;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("Ошибка закрытия файла истории переходов: " + e.getMessage());
+        }
+    }
+
+    private SortedMap<Long, Long> query(Map<String, ClickSeries> index, String key,
+                                        long fromMs, long toMs, ClickGranularity granularity) {
+        rollupLock.readLock().lock();
+        try {
+            ClickSeries series = index.get(key);
+            if (series == null || fromMs >= toMs) {
+                return new TreeMap<>();
+            }
+            return new TreeMap<>(series.buckets(granularity).subMap(granularity.bucketStart(fromMs), true, toMs, false));
+        } finally {
+            rollupLock.readLock().unlock();
+        }
+    }
+
+    /*
+    Цикл фонового потока: разбираем буфер пачками, раз в flushMs записываем итоги в файл,
+    раз в час убираем из памяти устаревшую поминутную историю.
+    */
+    private void consumeLoop() {
+        long nextFlushMs = System.currentTimeMillis() + flushMs;
+        long nextPruneMs = System.currentTimeMillis() + PRUNE_INTERVAL_MS;
+        while (!closed) {
+            int drained = drain();
+            long now = System.currentTimeMillis();
+            if (now >= nextFlushMs) {
+                persist();
+                nextFlushMs = now + flushMs;
+            }
+            if (now >= nextPruneMs) {
+                pruneMinutes(now);
+                nextPruneMs = now + PRUNE_INTERVAL_MS;
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NS);
+            }
+        }
+        while (drain() > 0) {
+            // разбираем всё, что успели опубликовать до остановки
+        }
+        persist();
+    }
+
+    /*
+    Метод разбирает до MAX_BATCH опубликованных событий по порядку номеров.
+    Ячейка освобождается для производителей только после того, как из неё прочитано событие.
+    */
+    private int drain() {
+        long head = consumed;
+        int count = 0;
+        rollupLock.writeLock().lock();
+        try {
+            while (count < MAX_BATCH) {
+                int index = (int) (head & mask);
+                if (published.getAcquire(index) != head + 1) {
+                    break;
+                }
+                String shortCode = eventCodes[index];
+                String ownerUuid = eventOwners[index];
+                long timeMs = eventTimes[index];
+                eventCodes[index] = null;
+                eventOwners[index] = null;
+                consumed = ++head;
+                count++;
+
+                long minuteMs = ClickGranularity.MINUTE.bucketStart(timeMs);
+                addToRollups(shortCode, ownerUuid, minuteMs, 1);
+                unflushed.merge(new BucketKey(shortCode, ownerUuid, minuteMs), 1L, Long::sum);
+                if (topLinks != null) {
+                    topLinks.add(shortCode, timeMs);
+                }
+            }
+        } finally {
+            rollupLock.writeLock().unlock();
+        }
+        EVENTS.add(count);
+        return count;
+    }
+
+    // Вызывается под rollupLock на запись (или при загрузке, до запуска потока)
+    private void addToRollups(String shortCode, String ownerUuid, long minuteMs, long count) {
+        boolean keepMinute = minuteMs >= System.currentTimeMillis() - minuteRetentionMs;
+        byLink.computeIfAbsent(shortCode, k -> new ClickSeries()).add(minuteMs, count, keepMinute);
+        if (ownerUuid != null) {
+            byOwner.computeIfAbsent(ownerUuid, k -> new ClickSeries()).add(minuteMs, count, keepMinute);
+        }
+    }
+
+    private void pruneMinutes(long nowMs) {
+        long cutoff = nowMs - minuteRetentionMs;
+        rollupLock.writeLock().lock();
+        try {
+            for (ClickSeries series : byLink.values()) {
+                series.minutes.headMap(cutoff).clear();
+            }
+            for (ClickSeries series : byOwner.values()) {
+                series.minutes.headMap(cutoff).clear();
+            }
+        } finally {
+            rollupLock.writeLock().unlock();
+        }
+    }
+
+    /*
+    Метод дописывает накопленные поминутные итоги в конец файла истории.
+    */
+    private void persist() {
+        if (unflushed.isEmpty()) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for (Map.Entry<BucketKey, Long> entry : unflushed.entrySet()) {
+                writeRecord(bytes, entry.getKey(), entry.getValue());
+            }
+            ByteBuffer data = ByteBuffer.wrap(bytes.toByteArray());
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(false);
+            BYTES_WRITTEN.add(bytes.size());
+            unflushed.clear();
+        } catch (IOException e) {
+            // Итоги остаются в памяти и будут записаны при следующей попытке
+            System.out.println("Ошибка записи истории переходов: " + e.getMessage());
+        }
+    }
+
+    /*
+    Метод читает файл истории при старте. Итоги одной минуты могут быть записаны несколькими
+    записями — они складываются. Оборванная последняя запись отрезается. Если повторов
+    больше, чем разных минут, файл переписывается по одной записи на минуту.
+    */
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        Map<BucketKey, Long> totals = new HashMap<>();
+        long records = 0;
+        long validEnd = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > 1 << 20) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    if (in.readInt() != checksum(payload)) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                String shortCode = record.readUTF();
+                String ownerUuid = record.readUTF();
+                BucketKey key = new BucketKey(shortCode, ownerUuid.isEmpty() ? null : ownerUuid, record.readLong());
+                totals.merge(key, record.readLong(), Long::sum);
+                records++;
+                validEnd += Integer.BYTES + payload.length + Integer.BYTES;
+            }
+        }
+
+        for (Map.Entry<BucketKey, Long> entry : totals.entrySet()) {
+            BucketKey key = entry.getKey();
+            addToRollups(key.shortCode, key.ownerUuid, key.minuteMs, entry.getValue());
+        }
+
+        if (records > 2L * totals.size()) {
+            rewrite(totals);
+        } else if (validEnd < Files.size(file)) {
+            try (FileChannel truncating = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                truncating.truncate(validEnd);
+            }
+        }
+    }
+
+    // Переписывает файл истории через временный файл и атомарное переименование
+    private void rewrite(Map<BucketKey, Long> totals) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+            for (Map.Entry<BucketKey, Long> entry : totals.entrySet()) {
+                writeRecord(out, entry.getKey(), entry.getValue());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /*
+    Запись файла истории: длина данных (4 байта), данные (код, владелец, начало минуты, число переходов),
+    CRC32 данных (4 байта).
+    */
+    private static void writeRecord(OutputStream out, BucketKey key, long count) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+        DataOutputStream record = new DataOutputStream(payload);
+        record.writeUTF(key.shortCode);
+        record.writeUTF(key.ownerUuid == null ? "" : key.ownerUuid);
+        record.writeLong(key.minuteMs);
+        record.writeLong(count);
+        byte[] data = payload.toByteArray();
+        DataOutputStream target = new DataOutputStream(out);
+        target.writeInt(data.length);
+        target.write(data);
+        target.writeInt(checksum(data));
+        target.flush();
+    }
+
+    private static int checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+
+    // Поминутный итог одной ссылки
+    private record BucketKey(String shortCode, String ownerUuid, long minuteMs) {
+    }
+
+    // Счётчики переходов по минутам, часам и дням: начало интервала -> число переходов
+    private static final class ClickSeries {
+        private final TreeMap<Long, Long> minutes = new TreeMap<>();
+        private final TreeMap<Long, Long> hours = new TreeMap<>();
+        private final TreeMap<Long, Long> days = new TreeMap<>();
+
+        void add(long minuteMs, long count, boolean keepMinute) {
+            if (keepMinute) {
+                minutes.merge(minuteMs, count, Long::sum);
+            }
+            hours.merge(ClickGranularity.HOUR.bucketStart(minuteMs), count, Long::sum);
+            days.merge(ClickGranularity.DAY.bucketStart(minuteMs), count, Long::sum);
+        }
+
+        NavigableMap<Long, Long> buckets(ClickGranularity granularity) {
+            switch (granularity) {
+                case MINUTE:
+                    return minutes;
+                case HOUR:
+                    return hours;
+                default:
+                    return days;
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package program;
+
+// Шаг истории переходов: поминутно, почасово или по дням (UTC)
+public enum ClickGranularity {
+    MINUTE(60_000L),
+    HOUR(3_600_000L),
+    DAY(86_400_000L);
+
+    private final long bucketMs;
+
+    ClickGranularity(long bucketMs) {
+        this.bucketMs = bucketMs;
+    }
+
+    public long getBucketMs() {
+        return bucketMs;
+    }
+
+    // Начало интервала, в который попадает момент timeMs
+    public long bucketStart(long timeMs) {
+        return Math.floorDiv(timeMs, bucketMs) * bucketMs;
+    }
+}
@@ -0,0 +1,9 @@
+package program;
+
+// Результат попытки перехода по короткой ссылке
+public enum ClickStatus {
+    OK,             // переход засчитан
+    NOT_FOUND,      // ссылки нет
+    EXPIRED,        // срок жизни истёк (ссылка удаляется)
+    LIMIT_REACHED   // лимит переходов исчерпан
+}
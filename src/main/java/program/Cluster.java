@@ -0,0 +1,92 @@
+package program;
+
+import java.io.IOException;
+
+/*
+Режим кластера: несколько узлов делят пространство кодов по кольцу HashRing.
+Узел создаёт ссылки только в своих партициях (PartitionedCodeAllocator) и хранит только их.
+Переход по чужому коду HTTP-сервер переходов либо пересылает владельцу по внутреннему
+протоколу (CLUSTER_FORWARD_MODE=forward), либо отвечает перенаправлением на HTTP-сервер
+владельца (redirect). Состав кластера задаётся статическим списком CLUSTER_NODES,
+свой узел — CLUSTER_NODE_ID; у всех узлов список должен быть одинаковым.
+*/
+public class Cluster {
+    private static final LatencyHistogram FORWARD_LATENCY =
+            Metrics.histogram("cluster_forward_seconds", "Время пересылки перехода узлу-владельцу");
+    private static final Metrics.Counter FORWARD_ERRORS =
+            Metrics.counter("cluster_forward_errors_total", "Ошибки пересылки перехода узлу-владельцу");
+
+    private final HashRing ring;
+    private final ClusterNode localNode;
+    private final boolean redirectMode;
+    private final ClusterClient client;
+    private final ClusterServer server;
+
+    public Cluster(ConfigService configService, LinkService linkService) throws IOException {
+        this.ring = createRing(configService);
+        this.localNode = localNode(ring, configService);
+        this.redirectMode = "redirect".equals(configService.getClusterForwardMode());
+        this.client = new ClusterClient(configService.getClusterTimeoutMs());
+        this.server = new ClusterServer(linkService, localNode.getClusterPort());
+    }
+
+    // Кольцо по списку CLUSTER_NODES (одинаковое на всех узлах)
+    public static HashRing createRing(ConfigService configService) {
+        return new HashRing(configService.getClusterNodes(), configService.getClusterVirtualNodes());
+    }
+
+    // Свой узел по CLUSTER_NODE_ID
+    public static ClusterNode localNode(HashRing ring, ConfigService configService) {
+        ClusterNode node = ring.getNode(configService.getClusterNodeId());
+        if (node == null) {
+            throw new IllegalArgumentException("Узел " + configService.getClusterNodeId()
+                    + " (CLUSTER_NODE_ID) отсутствует в CLUSTER_NODES");
+        }
+        return node;
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Узел кластера " + localNode.getId() + ": партиций " + ring.partitionCount(localNode)
+                + " из " + HashRing.PARTITIONS + ", узлов " + ring.getNodes().size());
+    }
+
+    public void stop() {
+        server.stop();
+        client.close();
+    }
+
+    // Принадлежит ли код этому узлу
+    public boolean isLocal(String shortCode) {
+        return ring.ownerOf(shortCode) == localNode;
+    }
+
+    public ClusterNode ownerOf(String shortCode) {
+        return ring.ownerOf(shortCode);
+    }
+
+    public boolean isRedirectMode() {
+        return redirectMode;
+    }
+
+    // Адрес перехода по коду на HTTP-сервере узла-владельца
+    public String redirectUrl(String shortCode) {
+        ClusterNode owner = ring.ownerOf(shortCode);
+        return "http://" + owner.getHost() + ":" + owner.getHttpPort() + "/" + shortCode;
+    }
+
+    /*
+    Метод пересылает переход по коду узлу-владельцу и возвращает его результат.
+    */
+    public ClusterClient.RemoteClick forwardClick(String shortCode) throws IOException {
+        long startNs = System.nanoTime();
+        try {
+            return client.click(ring.ownerOf(shortCode), shortCode);
+        } catch (IOException e) {
+            FORWARD_ERRORS.increment();
+            throw e;
+        } finally {
+            FORWARD_LATENCY.recordSince(startNs);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package program;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+Клиент внутреннего протокола кластера (см. ClusterServer): пересылает переход по коду узлу-владельцу.
+Соединения с каждым узлом переиспользуются: после ответа соединение возвращается в пул,
+поэтому на каждый переход не открывается новое TCP-соединение.
+*/
+public class ClusterClient {
+    private final int timeoutMs;
+    // Свободные соединения по идентификатору узла
+    private final Map<String, Queue<Connection>> idle = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    public ClusterClient(int timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    /*
+    Метод пересылает переход узлу node и возвращает его результат.
+    Переход не идемпотентен, поэтому запрос повторяется по другому соединению, только если
+    его не удалось отправить через соединение из пула (узел запрос не получил).
+    Если запрос отправлен, а ответ не прочитан (таймаут, обрыв, неполный ответ), узел мог уже
+    засчитать переход: запрос не повторяется, ошибка передаётся вызывающему (HTTP-сервер отвечает 502).
+    */
+    public RemoteClick click(ClusterNode node, String shortCode) throws IOException {
+        Queue<Connection> pool = idle.computeIfAbsent(node.getId(), id -> new ConcurrentLinkedQueue<>());
+        while (true) {
+            Connection connection = pool.poll();
+            boolean reused = connection != null;
+            if (connection == null) {
+                connection = new Connection(node, timeoutMs);
+            }
+            try {
+                connection.send(shortCode);
+            } catch (IOException e) {
+                connection.close();
+                if (!reused) {
+                    throw e;
+                }
+                continue;
+            }
+            RemoteClick result;
+            try {
+                result = connection.receive();
+            } catch (IOException e) {
+                connection.close();
+                // Остальные соединения с этим узлом, скорее всего, тоже оборваны (например, узел перезапущен)
+                closeAll(pool);
+                throw e;
+            }
+            if (closed) {
+                connection.close();
+            } else {
+                pool.offer(connection);
+            }
+            return result;
+        }
+    }
+
+    public void close() {
+        closed = true;
+        for (Queue<Connection> pool : idle.values()) {
+            closeAll(pool);
+        }
+    }
+
+    private static void closeAll(Queue<Connection> pool) {
+        Connection connection;
+        while ((connection = pool.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    // Результат перехода на другом узле
+    public static final class RemoteClick {
+        private final ClickStatus status;
+        private final String originalUrl;
+
+        RemoteClick(ClickStatus status, String originalUrl) {
+            this.status = status;
+            this.originalUrl = originalUrl;
+        }
+
+        public ClickStatus getStatus() {
+            return status;
+        }
+
+        // Исходная ссылка (только при OK)
+        public String getOriginalUrl() {
+            return originalUrl;
+        }
+    }
+
+    // Открытое соединение с узлом
+    private static final class Connection {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        Connection(ClusterNode node, int timeoutMs) throws IOException {
+            socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(node.getHost(), node.getClusterPort()), timeoutMs);
+                socket.setSoTimeout(timeoutMs);
+                socket.setTcpNoDelay(true);
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        // Отправка запроса: если она не удалась, узел получил в лучшем случае неполный запрос и не выполнил его
+        void send(String shortCode) throws IOException {
+            out.writeByte(ClusterServer.OP_CLICK);
+            out.writeUTF(shortCode);
+            out.flush();
+        }
+
+        RemoteClick receive() throws IOException {
+            int status = in.readUnsignedByte();
+            if (status >= ClickStatus.values().length) {
+                throw new IOException("Некорректный ответ узла кластера: " + status);
+            }
+            ClickStatus clickStatus = ClickStatus.values()[status];
+            return new RemoteClick(clickStatus, clickStatus == ClickStatus.OK ? in.readUTF() : null);
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Соединение уже закрыто
+            }
+        }
+    }
+}
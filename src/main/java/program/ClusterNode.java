@@ -0,0 +1,57 @@
+package program;
+
+/*
+Узел кластера из списка CLUSTER_NODES: идентификатор, хост, порт HTTP-сервера переходов
+и порт внутреннего протокола (пересылка переходов между узлами).
+Запись в конфигурации: id@host:httpPort:clusterPort
+*/
+public class ClusterNode {
+    private final String id;
+    private final String host;
+    private final int httpPort;
+    private final int clusterPort;
+
+    public ClusterNode(String id, String host, int httpPort, int clusterPort) {
+        this.id = id;
+        this.host = host;
+        this.httpPort = httpPort;
+        this.clusterPort = clusterPort;
+    }
+
+    // Разбор записи id@host:httpPort:clusterPort
+    public static ClusterNode parse(String value) {
+        String entry = value.trim();
+        int at = entry.indexOf('@');
+        String[] address = at > 0 ? entry.substring(at + 1).split(":") : new String[0];
+        if (address.length != 3) {
+            throw new IllegalArgumentException("Узел кластера должен быть задан как id@host:httpPort:clusterPort: " + value);
+        }
+        try {
+            return new ClusterNode(entry.substring(0, at), address[0],
+                    Integer.parseInt(address[1]), Integer.parseInt(address[2]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный порт узла кластера: " + value);
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getHttpPort() {
+        return httpPort;
+    }
+
+    public int getClusterPort() {
+        return clusterPort;
+    }
+
+    @Override
+    public String toString() {
+        return id + "@" + host + ":" + httpPort + ":" + clusterPort;
+    }
+}
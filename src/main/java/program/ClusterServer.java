@@ -0,0 +1,110 @@
+package program;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+Сервер внутреннего протокола кластера: принимает от других узлов переходы по кодам,
+которые принадлежат этому узлу.
+
+Протокол поверх TCP, соединение держится открытым для многих запросов подряд.
+Запрос: операция (1 байт), код ссылки (writeUTF).
+Ответ: результат перехода ClickStatus (1 байт, номер значения), при OK — исходная ссылка (writeUTF).
+Каждое соединение обслуживается в отдельном виртуальном потоке.
+*/
+public class ClusterServer {
+    // Операции протокола
+    static final byte OP_CLICK = 1;   // переход: проверка срока и лимита, счётчик увеличивается
+    private static final int BACKLOG = 1024;
+
+    private static final Metrics.Counter REQUESTS =
+            Metrics.counter("cluster_server_requests_total", "Запросы других узлов кластера");
+
+    private final LinkService linkService;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final Thread acceptor;
+    private volatile boolean stopped = false;
+
+    public ClusterServer(LinkService linkService, int port) throws IOException {
+        this.linkService = linkService;
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), BACKLOG);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.acceptor = new Thread(this::acceptLoop, "cluster-server");
+        acceptor.setDaemon(true);
+    }
+
+    public void start() {
+        acceptor.start();
+        System.out.println("Сервер кластера запущен на порту " + serverSocket.getLocalPort());
+    }
+
+    public void stop() {
+        stopped = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.out.println("Ошибка остановки сервера кластера: " + e.getMessage());
+        }
+        executor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!stopped) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!stopped) {
+                    System.out.println("Ошибка приёма соединения кластера: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /*
+    Обработка запросов одного соединения, пока другой узел его не закроет.
+    */
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (op != OP_CLICK) {
+                    System.out.println("Неизвестная операция протокола кластера: " + op);
+                    return;
+                }
+                String shortCode = in.readUTF();
+                REQUESTS.increment();
+                Link link = linkService.loadLink(shortCode);
+                ClickStatus status = linkService.registerClick(link);
+                out.writeByte(status.ordinal());
+                if (status == ClickStatus.OK) {
+                    out.writeUTF(link.getOriginalUrl());
+                }
+                out.flush();
+            }
+        } catch (SocketException e) {
+            // Соединение закрыто другим узлом или при остановке
+        } catch (IOException | UncheckedIOException e) {
+            // Переход, не записанный в журнал, не подтверждаем: соединение закрывается, узел-отправитель отвечает 502
+            if (!stopped) {
+                System.out.println("Ошибка соединения кластера: " + e.getMessage());
+            }
+        }
+    }
+}
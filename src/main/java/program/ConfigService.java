@@ -1,8 +1,11 @@
 package program;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 
 // Класс для работы с файлом конфигурации
@@ -61,4 +64,309 @@ public class ConfigService {
     public String getBaseUrl() {
         return configMap.getOrDefault("BASE_URL", "www.example.com");
     }
+
+    // Интервал (в мс), с которым изменения ссылок сбрасываются на диск
+    public long getWriteBehindFlushMs() {
+        String val = configMap.getOrDefault("WRITE_BEHIND_FLUSH_MS", "1000");
+        return Long.parseLong(val);
+    }
+
+    // Интервал (в мс) между проходами планировщика удаления просроченных ссылок
+    public long getExpirySweepIntervalMs() {
+        String val = configMap.getOrDefault("EXPIRY_SWEEP_INTERVAL_MS", "1000");
+        return Long.parseLong(val);
+    }
+
+    // Тип хранилища ссылок: file — файл на каждую ссылку, log — журнал сегментов,
+    // slot — слоты в отображённом файле, memory — только в памяти (без сохранения на диск)
+    public String getLinkStorage() {
+        return configMap.getOrDefault("LINK_STORAGE", "file");
+    }
+
+    // Папка журнала сегментов (для LINK_STORAGE=log)
+    public String getLogStoragePath() {
+        return configMap.getOrDefault("LOG_STORAGE_PATH", "links-log");
+    }
+
+    // Размер (в байтах), после которого журнал начинает новый сегмент
+    public long getLogSegmentBytes() {
+        String val = configMap.getOrDefault("LOG_SEGMENT_BYTES", "67108864");
+        return Long.parseLong(val);
+    }
+
+    // Интервал (в мс) между попытками фонового сжатия журнала
+    public long getLogCompactionIntervalMs() {
+        String val = configMap.getOrDefault("LOG_COMPACTION_INTERVAL_MS", "60000");
+        return Long.parseLong(val);
+    }
+
+    // Способ выдачи кодов ссылок: random — случайные, sequential — из счётчика с арендой блоков
+    public String getShortCodeAllocator() {
+        return configMap.getOrDefault("SHORT_CODE_ALLOCATOR", "random");
+    }
+
+    // Файл аренды блоков счётчика (для SHORT_CODE_ALLOCATOR=sequential)
+    public String getShortCodeLeaseFile() {
+        return configMap.getOrDefault("SHORT_CODE_LEASE_FILE", "code-lease.dat");
+    }
+
+    // Размер арендуемого блока номеров
+    public long getShortCodeBlockSize() {
+        String val = configMap.getOrDefault("SHORT_CODE_BLOCK_SIZE", "10000");
+        return Long.parseLong(val);
+    }
+
+    // Интервал (в мс) между проверками, нужно ли сжать users.txt
+    public long getUsersCompactionIntervalMs() {
+        String val = configMap.getOrDefault("USERS_COMPACTION_INTERVAL_MS", "60000");
+        return Long.parseLong(val);
+    }
+
+    // Порт HTTP-сервера переходов (0 — сервер не запускается)
+    public int getHttpPort() {
+        String val = configMap.getOrDefault("HTTP_PORT", "0");
+        return Integer.parseInt(val);
+    }
+
+    // Порт служебного HTTP-сервера на 127.0.0.1 с метриками (0 — не запускается)
+    public int getAdminPort() {
+        String val = configMap.getOrDefault("ADMIN_PORT", "0");
+        return Integer.parseInt(val);
+    }
+
+    // Файл, в который периодически выгружаются метрики
+    public String getMetricsDumpFile() {
+        return configMap.getOrDefault("METRICS_DUMP_FILE", "metrics.prom");
+    }
+
+    // Интервал (в мс) выгрузки метрик в файл (0 — не выгружать)
+    public long getMetricsDumpIntervalMs() {
+        String val = configMap.getOrDefault("METRICS_DUMP_INTERVAL_MS", "60000");
+        return Long.parseLong(val);
+    }
+
+    /*
+    Бюджет памяти (в байтах) кеша ссылок (0 — все ссылки держатся в памяти).
+    Ограничивает только кеш: индекс владельцев, очередь сроков и индекс повторов
+    хранят запись на каждую живую ссылку (около 150 байт) сверх этого бюджета.
+    */
+    public long getCacheMaxBytes() {
+        String val = configMap.getOrDefault("CACHE_MAX_BYTES", "0");
+        return Long.parseLong(val);
+    }
+
+    // Допустимая доля ложных срабатываний фильтра кодов ссылок
+    public double getBloomFalsePositiveRate() {
+        String val = configMap.getOrDefault("BLOOM_FPP", "0.01");
+        return Double.parseDouble(val);
+    }
+
+    // На сколько ссылок минимум рассчитан фильтр кодов
+    public long getBloomExpectedLinks() {
+        String val = configMap.getOrDefault("BLOOM_EXPECTED_LINKS", "1000000");
+        return Long.parseLong(val);
+    }
+
+    // Файл, в котором фильтр кодов сохраняется между запусками
+    public String getBloomFilterFile() {
+        return configMap.getOrDefault("BLOOM_FILTER_FILE", "links.bloom");
+    }
+
+    // Интервал (в мс) перестроения фильтра кодов для учёта удалённых ссылок
+    public long getBloomRebuildIntervalMs() {
+        String val = configMap.getOrDefault("BLOOM_REBUILD_INTERVAL_MS", "3600000");
+        return Long.parseLong(val);
+    }
+
+    // Папка хранилища слотов (для LINK_STORAGE=slot)
+    public String getSlotStoragePath() {
+        return configMap.getOrDefault("SLOT_STORAGE_PATH", "links-slots");
+    }
+
+    // На сколько байт за раз растёт файл слотов
+    public long getSlotChunkBytes() {
+        String val = configMap.getOrDefault("SLOT_CHUNK_BYTES", "67108864");
+        return Long.parseLong(val);
+    }
+
+    // Вести ли журнал упреждающей записи изменений ссылок
+    public boolean isWalEnabled() {
+        return Boolean.parseBoolean(configMap.getOrDefault("WAL_ENABLED", "true"));
+    }
+
+    // Папка журнала упреждающей записи
+    public String getWalPath() {
+        return configMap.getOrDefault("WAL_PATH", "links-wal");
+    }
+
+    // Окно (в мс) группового сброса журнала: записи за это время подтверждаются одним fsync
+    public long getWalGroupCommitMs() {
+        String val = configMap.getOrDefault("WAL_GROUP_COMMIT_MS", "2");
+        return Long.parseLong(val);
+    }
+
+    // Собирать ли историю переходов по ссылкам
+    public boolean isAnalyticsEnabled() {
+        return Boolean.parseBoolean(configMap.getOrDefault("ANALYTICS_ENABLED", "true"));
+    }
+
+    // Файл истории переходов (дописывается в конец)
+    public String getAnalyticsFile() {
+        return configMap.getOrDefault("ANALYTICS_FILE", "clicks.dat");
+    }
+
+    // Размер кольцевого буфера событий переходов (округляется вверх до степени двойки)
+    public int getAnalyticsBufferSize() {
+        String val = configMap.getOrDefault("ANALYTICS_BUFFER_SIZE", "65536");
+        return Integer.parseInt(val);
+    }
+
+    // Интервал (в мс) записи накопленных переходов в файл истории
+    public long getAnalyticsFlushMs() {
+        String val = configMap.getOrDefault("ANALYTICS_FLUSH_MS", "1000");
+        return Long.parseLong(val);
+    }
+
+    // Сколько мс хранить поминутную историю в памяти (почасовая и подневная хранятся всегда)
+    public long getAnalyticsMinuteRetentionMs() {
+        String val = configMap.getOrDefault("ANALYTICS_MINUTE_RETENTION_MS", "172800000");
+        return Long.parseLong(val);
+    }
+
+    // Окна (в минутах, через запятую), за которые считаются самые популярные ссылки
+    public long[] getTopLinksWindowsMs() {
+        String val = configMap.getOrDefault("TOP_LINKS_WINDOWS_MINUTES", "1,5,60");
+        String[] parts = val.split(",");
+        long[] windowsMs = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            windowsMs[i] = TimeUnit.MINUTES.toMillis(Long.parseLong(parts[i].trim()));
+        }
+        return windowsMs;
+    }
+
+    // Сколько самых популярных ссылок можно запросить за раз
+    public int getTopLinksSize() {
+        String val = configMap.getOrDefault("TOP_LINKS_SIZE", "100");
+        return Integer.parseInt(val);
+    }
+
+    // Ширина строки Count-Min Sketch для популярных ссылок
+    public int getTopLinksSketchWidth() {
+        String val = configMap.getOrDefault("TOP_LINKS_SKETCH_WIDTH", "4096");
+        return Integer.parseInt(val);
+    }
+
+    // Интервал (в мс) записи снимков индексов ссылок и пользователей
+    public long getSnapshotIntervalMs() {
+        String val = configMap.getOrDefault("SNAPSHOT_INTERVAL_MS", "300000");
+        return Long.parseLong(val);
+    }
+
+    // Файл снимка ссылок
+    public String getLinkSnapshotFile() {
+        return configMap.getOrDefault("LINK_SNAPSHOT_FILE", "links.snapshot");
+    }
+
+    // Файл снимка пользователей
+    public String getUserSnapshotFile() {
+        return configMap.getOrDefault("USER_SNAPSHOT_FILE", "users.snapshot");
+    }
+
+    // Поиск повторов: повторное создание ссылки на тот же URL возвращает существующую ссылку
+    public boolean isDedupEnabled() {
+        return Boolean.parseBoolean(configMap.getOrDefault("DEDUP_ENABLED", "false"));
+    }
+
+    /*
+    Узлы кластера: id@host:httpPort:clusterPort через запятую.
+    Пустой список — режим кластера выключен.
+    */
+    public List<ClusterNode> getClusterNodes() {
+        String val = configMap.getOrDefault("CLUSTER_NODES", "");
+        List<ClusterNode> nodes = new ArrayList<>();
+        for (String entry : val.split(",")) {
+            if (!entry.isBlank()) {
+                nodes.add(ClusterNode.parse(entry));
+            }
+        }
+        return nodes;
+    }
+
+    public boolean isClusterEnabled() {
+        return !configMap.getOrDefault("CLUSTER_NODES", "").isBlank();
+    }
+
+    // Идентификатор этого узла в CLUSTER_NODES
+    public String getClusterNodeId() {
+        return configMap.getOrDefault("CLUSTER_NODE_ID", "");
+    }
+
+    // Число виртуальных точек узла на кольце кластера
+    public int getClusterVirtualNodes() {
+        String val = configMap.getOrDefault("CLUSTER_VIRTUAL_NODES", "128");
+        return Integer.parseInt(val);
+    }
+
+    // Переход по коду другого узла: forward — переслать владельцу, redirect — перенаправить к нему
+    public String getClusterForwardMode() {
+        return configMap.getOrDefault("CLUSTER_FORWARD_MODE", "forward");
+    }
+
+    // Таймаут (в мс) соединения и ответа другого узла кластера
+    public int getClusterTimeoutMs() {
+        String val = configMap.getOrDefault("CLUSTER_TIMEOUT_MS", "1000");
+        return Integer.parseInt(val);
+    }
+
+    // Работа без консольного меню (только серверы), например для узлов кластера
+    public boolean isHeadless() {
+        return Boolean.parseBoolean(configMap.getOrDefault("HEADLESS", "false"));
+    }
+
+    // Порт сервера репликации на ведущем узле (0 — реплики не принимаются)
+    public int getReplicationPort() {
+        String val = configMap.getOrDefault("REPLICATION_PORT", "0");
+        return Integer.parseInt(val);
+    }
+
+    // Адрес ведущего узла host:port для реплики (пусто — узел не реплика)
+    public String getReplicationLeader() {
+        return configMap.getOrDefault("REPLICATION_LEADER", "");
+    }
+
+    // Сколько изменений может ждать отправки одной реплике, прежде чем она будет отключена
+    public int getReplicationQueueSize() {
+        String val = configMap.getOrDefault("REPLICATION_QUEUE_SIZE", "100000");
+        return Integer.parseInt(val);
+    }
+
+    // Интервал (в мс) отправки переходов с реплики на ведущий узел
+    public long getReplicationClickFlushMs() {
+        String val = configMap.getOrDefault("REPLICATION_CLICK_FLUSH_MS", "100");
+        return Long.parseLong(val);
+    }
+
+    // Время (в мс) без обращений, после которого сессия истекает
+    public long getSessionIdleTimeoutMs() {
+        String val = configMap.getOrDefault("SESSION_IDLE_TIMEOUT_MS", "1800000");
+        return Long.parseLong(val);
+    }
+
+    // Наибольшее время жизни сессии (в мс) с момента входа
+    public long getSessionAbsoluteTimeoutMs() {
+        String val = configMap.getOrDefault("SESSION_ABSOLUTE_TIMEOUT_MS", "43200000");
+        return Long.parseLong(val);
+    }
+
+    // Наибольшее число одновременных сессий
+    public int getSessionMax() {
+        String val = configMap.getOrDefault("SESSION_MAX", "500000");
+        return Integer.parseInt(val);
+    }
+
+    // Интервал (в мс) удаления истёкших сессий
+    public long getSessionSweepIntervalMs() {
+        String val = configMap.getOrDefault("SESSION_SWEEP_INTERVAL_MS", "60000");
+        return Long.parseLong(val);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+package program;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+
+/*
+Индекс повторных ссылок: (uuid владельца, нормализованная исходная ссылка) -> код живой ссылки.
+Вместо строк хранится 64-битный отпечаток пары, поэтому запись занимает ~20 байт
+независимо от длины URL (открытая адресация: массив отпечатков и массив ссылок на коды).
+Совпадение отпечатков не гарантирует совпадения ссылок: найденную ссылку нужно сверить
+с владельцем и URL, при расхождении считать, что повтора нет.
+*/
+public class DedupIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+    // Пустая ячейка; отпечаток 0 заменяется на 1
+    private static final long EMPTY = 0;
+
+    private long[] digests = new long[INITIAL_CAPACITY];
+    private String[] codes = new String[INITIAL_CAPACITY];
+    private int size;
+
+    /*
+    Метод нормализации исходной ссылки: схема и хост в нижнем регистре, порт по умолчанию
+    (80 для http, 443 для https) и пробелы по краям убираются, пустой путь заменяется на "/".
+    Путь, параметры и якорь не меняются. Строка, которая не разбирается как URL, только обрезается.
+    */
+    public static String normalizeUrl(String originalUrl) {
+        String url = originalUrl.trim();
+        try {
+            URI uri = new URI(url);
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return url;
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            if (port == 80 && scheme.equals("http") || port == 443 && scheme.equals("https")) {
+                port = -1;
+            }
+            StringBuilder sb = new StringBuilder(url.length()).append(scheme).append("://");
+            if (uri.getRawUserInfo() != null) {
+                sb.append(uri.getRawUserInfo()).append('@');
+            }
+            sb.append(uri.getHost().toLowerCase(Locale.ROOT));
+            if (port != -1) {
+                sb.append(':').append(port);
+            }
+            String path = uri.getRawPath();
+            sb.append(path == null || path.isEmpty() ? "/" : path);
+            if (uri.getRawQuery() != null) {
+                sb.append('?').append(uri.getRawQuery());
+            }
+            if (uri.getRawFragment() != null) {
+                sb.append('#').append(uri.getRawFragment());
+            }
+            return sb.toString();
+        } catch (URISyntaxException e) {
+            return url;
+        }
+    }
+
+    // 64-битный отпечаток пары (владелец, нормализованная ссылка): FNV-1a с перемешиванием
+    public static long digest(String ownerUuid, String normalizedUrl) {
+        long h = 0xCBF29CE484222325L;
+        h = mixIn(h, ownerUuid);
+        h = (h ^ 0xFFFF) * 0x100000001B3L;
+        h = mixIn(h, normalizedUrl);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1 : h;
+    }
+
+    // Возвращает код ссылки с этим отпечатком или null
+    public synchronized String get(long digest) {
+        int mask = digests.length - 1;
+        for (int i = index(digest, mask); digests[i] != EMPTY; i = (i + 1) & mask) {
+            if (digests[i] == digest) {
+                return codes[i];
+            }
+        }
+        return null;
+    }
+
+    // Запоминает код для отпечатка (прежний код с тем же отпечатком заменяется)
+    public synchronized void put(long digest, String shortCode) {
+        int mask = digests.length - 1;
+        int i = index(digest, mask);
+        while (digests[i] != EMPTY) {
+            if (digests[i] == digest) {
+                codes[i] = shortCode;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        digests[i] = digest;
+        codes[i] = shortCode;
+        // Заполнение не больше 3/4
+        if (++size * 4 > digests.length * 3) {
+            resize(digests.length * 2);
+        }
+    }
+
+    /*
+    Метод удаляет отпечаток, только если он указывает на этот код: ссылка с тем же URL,
+    созданная позже, остаётся в индексе. Ячейки за удалённой сдвигаются назад,
+    поэтому цепочки поиска не рвутся и метки удаления не нужны.
+    */
+    public synchronized void remove(long digest, String shortCode) {
+        int mask = digests.length - 1;
+        int i = index(digest, mask);
+        while (digests[i] != digest) {
+            if (digests[i] == EMPTY) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        if (!codes[i].equals(shortCode)) {
+            return;
+        }
+        int hole = i;
+        for (int j = (hole + 1) & mask; digests[j] != EMPTY; j = (j + 1) & mask) {
+            int home = index(digests[j], mask);
+            // Запись j можно перенести в дыру, если её исходная ячейка не лежит между дырой и j
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                digests[hole] = digests[j];
+                codes[hole] = codes[j];
+                hole = j;
+            }
+        }
+        digests[hole] = EMPTY;
+        codes[hole] = null;
+        size--;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Объём массивов индекса в байтах (без строк кодов, они общие со ссылками)
+    public synchronized long getSizeBytes() {
+        return (long) digests.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    private void resize(int capacity) {
+        long[] oldDigests = digests;
+        String[] oldCodes = codes;
+        digests = new long[capacity];
+        codes = new String[capacity];
+        int mask = capacity - 1;
+        for (int k = 0; k < oldDigests.length; k++) {
+            if (oldDigests[k] != EMPTY) {
+                int i = index(oldDigests[k], mask);
+                while (digests[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                digests[i] = oldDigests[k];
+                codes[i] = oldCodes[k];
+            }
+        }
+    }
+
+    private static int index(long digest, int mask) {
+        return (int) (digest ^ (digest >>> 32)) & mask;
+    }
+
+    private static long mixIn(long h, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return h;
+    }
+}
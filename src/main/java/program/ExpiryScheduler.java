@@ -0,0 +1,133 @@
+package program;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/*
+Планировщик удаления просроченных ссылок.
+Хранит очередь сроков истечения, упорядоченную по времени, и в фоновом потоке
+снимает с её головы только те ссылки, срок которых уже наступил.
+Стоимость одного прохода зависит от числа истёкших ссылок, а не от общего числа ссылок.
+*/
+public class ExpiryScheduler {
+    // Метрики
+    private static final LatencyHistogram SWEEP_LATENCY =
+            Metrics.histogram("link_expiry_sweep_seconds", "Время прохода планировщика удаления просроченных ссылок");
+    private static final Metrics.Counter EXPIRED =
+            Metrics.counter("links_expired_total", "Ссылки, удалённые по истечении срока жизни");
+
+    // Очередь сроков: в голове всегда ссылка, которая истекает раньше всех
+    private final PriorityBlockingQueue<Entry> queue = new PriorityBlockingQueue<>();
+    // Действие удаления: получает код ссылки, возвращает true, если ссылка действительно удалена
+    private final Predicate<String> expireAction;
+    private final long sweepIntervalMs;
+    private final ScheduledExecutorService executor;
+
+    // Статистика проходов
+    private final AtomicLong totalRemoved = new AtomicLong();
+    private volatile int lastSweepRemoved;
+    private volatile long lastSweepDurationMs;
+
+    /*
+    Объявляем конструктор класса. Фоновые проходы запускает start().
+    */
+    public ExpiryScheduler(Predicate<String> expireAction, long sweepIntervalMs) {
+        this.expireAction = expireAction;
+        this.sweepIntervalMs = sweepIntervalMs;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "link-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+    Метод запускает фоновый поток, который раз в sweepIntervalMs мс выполняет проход по очереди.
+    */
+    public void start() {
+        executor.scheduleWithFixedDelay(this::sweep, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+    Метод добавляет ссылку в очередь на удаление к моменту deadlineMs.
+    */
+    public void schedule(String shortCode, long deadlineMs) {
+        queue.add(new Entry(shortCode, deadlineMs));
+    }
+
+    /*
+    Метод выполняет один проход: снимает с головы очереди все наступившие сроки
+    и удаляет соответствующие ссылки. Возвращает число удалённых ссылок.
+    Проход ничего не печатает: удаления видны в метрике links_expired_total.
+    Записи об уже удалённых или пересозданных ссылках пропускаются действием удаления.
+    */
+    public synchronized int sweep() {
+        long startNs = System.nanoTime();
+        long now = System.currentTimeMillis();
+        int removed = 0;
+
+        Entry head;
+        while ((head = queue.peek()) != null && head.deadlineMs <= now) {
+            queue.poll();
+            try {
+                if (expireAction.test(head.shortCode)) {
+                    removed++;
+                }
+            } catch (RuntimeException e) {
+                System.out.println("Ошибка удаления просроченной ссылки " + head.shortCode + ": " + e.getMessage());
+            }
+        }
+
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+        lastSweepRemoved = removed;
+        lastSweepDurationMs = durationMs;
+        totalRemoved.addAndGet(removed);
+        EXPIRED.add(removed);
+        SWEEP_LATENCY.recordSince(startNs);
+        return removed;
+    }
+
+    /*
+    Метод останавливает фоновый поток.
+    */
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // Геттеры статистики
+    public int getLastSweepRemoved() {
+        return lastSweepRemoved;
+    }
+
+    public long getLastSweepDurationMs() {
+        return lastSweepDurationMs;
+    }
+
+    public long getTotalRemoved() {
+        return totalRemoved.get();
+    }
+
+    public int getScheduledCount() {
+        return queue.size();
+    }
+
+    // Элемент очереди: код ссылки и момент её истечения
+    private static final class Entry implements Comparable<Entry> {
+        private final String shortCode;
+        private final long deadlineMs;
+
+        private Entry(String shortCode, long deadlineMs) {
+            this.shortCode = shortCode;
+            this.deadlineMs = deadlineMs;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Long.compare(deadlineMs, other.deadlineMs);
+        }
+    }
+}
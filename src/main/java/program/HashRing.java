@@ -0,0 +1,83 @@
+package program;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+Кольцо согласованного хеширования над пространством кодов ссылок.
+Код попадает в одну из PARTITIONS партиций по хешу, а партиция принадлежит узлу,
+чья виртуальная точка на кольце идёт следующей за точкой партиции. У каждого узла
+virtualNodes точек, поэтому партиции делятся между узлами почти поровну, а при добавлении
+или удалении узла переезжают только партиции, которые он забирает или отдаёт.
+Хеши строятся на String.hashCode, поэтому на всех узлах (и во всех JVM) кольцо одинаковое,
+если одинаков список CLUSTER_NODES.
+*/
+public class HashRing {
+    public static final int PARTITIONS = 4096;
+
+    private final List<ClusterNode> nodes;
+    // Владелец каждой партиции
+    private final ClusterNode[] owners = new ClusterNode[PARTITIONS];
+
+    public HashRing(List<ClusterNode> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Список узлов кластера пуст");
+        }
+        this.nodes = new ArrayList<>(nodes);
+        TreeMap<Long, ClusterNode> ring = new TreeMap<>();
+        for (ClusterNode node : nodes) {
+            for (int v = 0; v < virtualNodes; v++) {
+                ring.put(mix((node.getId() + "#" + v).hashCode()), node);
+            }
+        }
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            Map.Entry<Long, ClusterNode> entry = ring.ceilingEntry(mix(partition * 0x9E3779B9L));
+            owners[partition] = (entry != null ? entry : ring.firstEntry()).getValue();
+        }
+    }
+
+    // Номер партиции кода
+    public static int partitionOf(String shortCode) {
+        return (int) Math.floorMod(mix(shortCode.hashCode()), (long) PARTITIONS);
+    }
+
+    // Узел, которому принадлежит код
+    public ClusterNode ownerOf(String shortCode) {
+        return owners[partitionOf(shortCode)];
+    }
+
+    // Узел по идентификатору или null
+    public ClusterNode getNode(String id) {
+        for (ClusterNode node : nodes) {
+            if (node.getId().equals(id)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    public List<ClusterNode> getNodes() {
+        return nodes;
+    }
+
+    // Число партиций узла
+    public int partitionCount(ClusterNode node) {
+        int count = 0;
+        for (ClusterNode owner : owners) {
+            if (owner == node) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long mix(long h) {
+        h *= 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
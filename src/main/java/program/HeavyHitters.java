@@ -0,0 +1,283 @@
+package program;
+
+import java.util.*;
+
+/*
+Самые популярные ссылки (heavy hitters) за последние минуты в фиксированном объёме памяти.
+
+Каждое окно (например, 1, 5 и 60 минут) разбито на SLOTS интервалов. В каждом интервале
+Count-Min Sketch оценивает число переходов по любому коду, а min-куча хранит кандидатов —
+коды с наибольшими оценками. Запрос складывает оценки кандидатов по всем интервалам окна
+и сортирует их. Окно скользит шагом в один интервал: учитываются текущий (неполный)
+интервал и SLOTS - 1 предыдущих.
+
+Оценка Count-Min никогда не меньше точного значения и превышает его не более чем
+на ~e/width от числа переходов в интервале (с вероятностью 1 - e^-DEPTH).
+Обновляется одним потоком (обработчиком истории переходов), запросы могут идти из любых потоков.
+*/
+public class HeavyHitters {
+    private static final int SLOTS = 6;
+    private static final int DEPTH = 4;
+    // Ссылка на код, оценка и запись в индексе позиций кучи
+    private static final int CANDIDATE_BYTES = 8 + 8 + 48;
+
+    private final Window[] windows;
+    private final int maxResults;
+
+    /*
+    windowsMs — длины окон, maxResults — сколько ссылок можно запросить за раз,
+    sketchWidth — ширина строки Count-Min Sketch (округляется до степени двойки).
+    */
+    public HeavyHitters(long[] windowsMs, int maxResults, int sketchWidth) {
+        this.maxResults = maxResults;
+        int width = Integer.highestOneBit(Math.max(16, sketchWidth - 1)) << 1;
+        this.windows = new Window[windowsMs.length];
+        for (int i = 0; i < windowsMs.length; i++) {
+            // Кандидатов храним с запасом: код может быть в середине списка в каждом интервале
+            windows[i] = new Window(windowsMs[i], width, 2 * maxResults);
+        }
+    }
+
+    // Учитывает переход по ссылке в момент timeMs
+    public synchronized void add(String shortCode, long timeMs) {
+        long hash = hash(shortCode);
+        for (Window window : windows) {
+            window.add(shortCode, hash, timeMs);
+        }
+    }
+
+    /*
+    Метод возвращает до limit самых популярных ссылок за окно windowMs (на момент nowMs),
+    по убыванию оценки числа переходов. Окно должно быть одним из заданных в конструкторе.
+    */
+    public synchronized List<Entry> top(long windowMs, int limit, long nowMs) {
+        Window window = null;
+        for (Window candidate : windows) {
+            if (candidate.lengthMs == windowMs) {
+                window = candidate;
+            }
+        }
+        if (window == null) {
+            throw new IllegalArgumentException("Окно " + windowMs + " мс не отслеживается");
+        }
+        return window.top(Math.min(limit, maxResults), nowMs);
+    }
+
+    public long[] getWindowsMs() {
+        long[] result = new long[windows.length];
+        for (int i = 0; i < windows.length; i++) {
+            result[i] = windows[i].lengthMs;
+        }
+        return result;
+    }
+
+    // Примерный объём памяти счётчиков и кандидатов в байтах (без самих строк кодов)
+    public long getSizeBytes() {
+        long bytes = 0;
+        for (Window window : windows) {
+            for (Slot slot : window.slots) {
+                bytes += (long) slot.counters.length * Integer.BYTES
+                        + (long) slot.candidates.length * CANDIDATE_BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    private static long hash(String shortCode) {
+        long h = shortCode.hashCode() * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // Популярная ссылка и оценка числа переходов по ней за окно
+    public static final class Entry {
+        private final String shortCode;
+        private final long clicks;
+
+        Entry(String shortCode, long clicks) {
+            this.shortCode = shortCode;
+            this.clicks = clicks;
+        }
+
+        public String getShortCode() {
+            return shortCode;
+        }
+
+        public long getClicks() {
+            return clicks;
+        }
+    }
+
+    // Окно длиной lengthMs: кольцо из SLOTS интервалов
+    private static final class Window {
+        private final long lengthMs;
+        private final long slotMs;
+        private final Slot[] slots = new Slot[SLOTS];
+
+        Window(long lengthMs, int width, int candidates) {
+            this.lengthMs = lengthMs;
+            this.slotMs = Math.max(1, lengthMs / SLOTS);
+            for (int i = 0; i < SLOTS; i++) {
+                slots[i] = new Slot(width, candidates);
+            }
+        }
+
+        void add(String shortCode, long hash, long timeMs) {
+            long epoch = timeMs / slotMs;
+            Slot slot = slots[(int) (epoch % SLOTS)];
+            if (slot.epoch < epoch) {
+                slot.reset(epoch);
+            } else if (slot.epoch > epoch) {
+                // Событие старше интервала, который уже занял эту ячейку
+                return;
+            }
+            slot.add(shortCode, hash);
+        }
+
+        List<Entry> top(int limit, long nowMs) {
+            long nowEpoch = nowMs / slotMs;
+            List<Slot> live = new ArrayList<>(SLOTS);
+            for (Slot slot : slots) {
+                if (slot.epoch > nowEpoch - SLOTS && slot.epoch <= nowEpoch) {
+                    live.add(slot);
+                }
+            }
+            Set<String> candidates = new HashSet<>();
+            for (Slot slot : live) {
+                for (int i = 0; i < slot.size; i++) {
+                    candidates.add(slot.candidates[i]);
+                }
+            }
+            List<Entry> result = new ArrayList<>(candidates.size());
+            for (String shortCode : candidates) {
+                long hash = hash(shortCode);
+                long clicks = 0;
+                for (Slot slot : live) {
+                    clicks += slot.estimate(hash);
+                }
+                result.add(new Entry(shortCode, clicks));
+            }
+            result.sort(Comparator.comparingLong(Entry::getClicks).reversed()
+                    .thenComparing(Entry::getShortCode));
+            return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+        }
+    }
+
+    /*
+    Интервал окна: Count-Min Sketch (DEPTH строк по width счётчиков) и min-куча кандидатов
+    по оценке. Новый код вытесняет из кучи код с наименьшей оценкой, только если его оценка больше.
+    */
+    private static final class Slot {
+        private final int mask;
+        private final int[] counters;
+        private final String[] candidates;
+        private final long[] candidateCounts;
+        private final Map<String, Integer> positions = new HashMap<>();
+        private int size;
+        private long epoch = -1;
+
+        Slot(int width, int capacity) {
+            this.mask = width - 1;
+            this.counters = new int[DEPTH * width];
+            this.candidates = new String[capacity];
+            this.candidateCounts = new long[capacity];
+        }
+
+        void reset(long newEpoch) {
+            epoch = newEpoch;
+            Arrays.fill(counters, 0);
+            Arrays.fill(candidates, 0, size, null);
+            positions.clear();
+            size = 0;
+        }
+
+        /*
+        Консервативное обновление: увеличиваются только счётчики, равные текущему минимуму,
+        это уменьшает завышение оценок у редких кодов.
+        */
+        void add(String shortCode, long hash) {
+            long estimate = estimate(hash) + 1;
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int row = 0; row < DEPTH; row++) {
+                int index = row * (mask + 1) + ((h1 + row * h2) & mask);
+                if (counters[index] < estimate) {
+                    counters[index] = (int) Math.min(estimate, Integer.MAX_VALUE);
+                }
+            }
+            offer(shortCode, estimate);
+        }
+
+        long estimate(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            long min = Long.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, counters[row * (mask + 1) + ((h1 + row * h2) & mask)]);
+            }
+            return min;
+        }
+
+        private void offer(String shortCode, long estimate) {
+            Integer position = positions.get(shortCode);
+            if (position != null) {
+                candidateCounts[position] = estimate;
+                siftDown(position);
+            } else if (size < candidates.length) {
+                candidates[size] = shortCode;
+                candidateCounts[size] = estimate;
+                positions.put(shortCode, size);
+                siftUp(size++);
+            } else if (estimate > candidateCounts[0]) {
+                positions.remove(candidates[0]);
+                candidates[0] = shortCode;
+                candidateCounts[0] = estimate;
+                positions.put(shortCode, 0);
+                siftDown(0);
+            }
+        }
+
+        private void siftUp(int position) {
+            while (position > 0) {
+                int parent = (position - 1) / 2;
+                if (candidateCounts[parent] <= candidateCounts[position]) {
+                    return;
+                }
+                swap(parent, position);
+                position = parent;
+            }
+        }
+
+        private void siftDown(int position) {
+            while (true) {
+                int smallest = position;
+                int left = 2 * position + 1;
+                int right = left + 1;
+                if (left < size && candidateCounts[left] < candidateCounts[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && candidateCounts[right] < candidateCounts[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == position) {
+                    return;
+                }
+                swap(smallest, position);
+                position = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            String code = candidates[a];
+            candidates[a] = candidates[b];
+            candidates[b] = code;
+            long count = candidateCounts[a];
+            candidateCounts[a] = candidateCounts[b];
+            candidateCounts[b] = count;
+            positions.put(candidates[a], a);
+            positions.put(candidates[b], b);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package program;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/*
+Хранилище ссылок в памяти процесса, без записи на диск: после перезапуска оно пустое.
+Подходит для тестовых запусков и бенчмарков, а также как эталон поведения хранилища.
+Хранит копии ссылок, поэтому изменения объекта Link после put не видны до следующего put,
+как и у дисковых хранилищ. Ведёт индекс владельцев для forEachByOwner.
+*/
+public class InMemoryLinkRepository implements LinkRepository {
+    private final Map<String, Link> links = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> codesByOwner = new ConcurrentHashMap<>();
+
+    @Override
+    public void forEach(Consumer<Link> consumer) {
+        for (Link link : links.values()) {
+            consumer.accept(copyOf(link));
+        }
+    }
+
+    @Override
+    public Link get(String shortCode) {
+        Link link = links.get(shortCode);
+        return link == null ? null : copyOf(link);
+    }
+
+    @Override
+    public void put(Link link) {
+        Link copy = copyOf(link);
+        Link previous = links.put(copy.getShortCode(), copy);
+        if (previous != null && !previous.getOwnerUuid().equals(copy.getOwnerUuid())) {
+            removeFromOwnerIndex(previous);
+        }
+        codesByOwner.computeIfAbsent(copy.getOwnerUuid(), owner -> ConcurrentHashMap.newKeySet())
+                .add(copy.getShortCode());
+    }
+
+    @Override
+    public long incrementClicks(String shortCode, long delta) {
+        long[] clicks = {-1};
+        links.computeIfPresent(shortCode, (code, link) -> {
+            clicks[0] = link.getCurrentClicks() + delta;
+            link.setCurrentClicks(clicks[0]);
+            return link;
+        });
+        return clicks[0];
+    }
+
+    @Override
+    public void delete(String shortCode) {
+        Link removed = links.remove(shortCode);
+        if (removed != null) {
+            removeFromOwnerIndex(removed);
+        }
+    }
+
+    // Данные только в памяти, сбрасывать нечего
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void forEachByOwner(String ownerUuid, Consumer<Link> consumer) {
+        Set<String> codes = codesByOwner.get(ownerUuid);
+        if (codes == null) {
+            return;
+        }
+        for (String shortCode : codes) {
+            Link link = get(shortCode);
+            if (link != null && ownerUuid.equals(link.getOwnerUuid())) {
+                consumer.accept(link);
+            }
+        }
+    }
+
+    public int size() {
+        return links.size();
+    }
+
+    private void removeFromOwnerIndex(Link link) {
+        codesByOwner.computeIfPresent(link.getOwnerUuid(), (owner, codes) -> {
+            codes.remove(link.getShortCode());
+            return codes.isEmpty() ? null : codes;
+        });
+    }
+
+    private static Link copyOf(Link link) {
+        Link copy = new Link();
+        copy.setShortCode(link.getShortCode());
+        copy.setOwnerUuid(link.getOwnerUuid());
+        copy.setOriginalUrl(link.getOriginalUrl());
+        copy.setCreateTimeMs(link.getCreateTimeMs());
+        copy.setTlMinutes(link.getTlMinutes());
+        copy.setMaxClicks(link.getMaxClicks());
+        copy.setCurrentClicks(link.getCurrentClicks());
+        return copy;
+    }
+}
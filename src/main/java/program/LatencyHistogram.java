@@ -0,0 +1,98 @@
+package program;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Гистограмма задержек в стиле HDR: логарифмически-линейные корзины.
+Каждая степень двойки делится на 32 равные части, поэтому относительная погрешность
+перцентилей не больше ~3% во всём диапазоне long.
+Запись значения — несколько атомарных инкрементов без выделения памяти,
+её можно вызывать на горячем пути.
+*/
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalSum = new LongAdder();
+
+    // Записывает значение (обычно длительность в наносекундах)
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        totalCount.increment();
+        totalSum.add(value);
+    }
+
+    // Записывает длительность от момента startNs (System.nanoTime()) до текущего момента
+    public void recordSince(long startNs) {
+        record(System.nanoTime() - startNs);
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getSum() {
+        return totalSum.sum();
+    }
+
+    /*
+    Метод возвращает значение, ниже которого лежит доля percentile (от 0 до 1) записанных значений.
+    Считается по текущим значениям корзин, без блокировки записи.
+    */
+    public long valueAtPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return highestEquivalentValue(i);
+            }
+        }
+        return highestEquivalentValue(BUCKET_COUNT - 1);
+    }
+
+    // Номер корзины для значения
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    // Наименьшее значение, попадающее в корзину
+    static long lowestEquivalentValue(int index) {
+        int block = index >>> SUB_BUCKET_BITS;
+        int subBucket = index & (SUB_BUCKET_COUNT - 1);
+        if (block == 0) {
+            return subBucket;
+        }
+        return ((long) (SUB_BUCKET_COUNT | subBucket)) << (block - 1);
+    }
+
+    // Наибольшее значение, попадающее в корзину
+    static long highestEquivalentValue(int index) {
+        if (index + 1 >= BUCKET_COUNT) {
+            return Long.MAX_VALUE;
+        }
+        return lowestEquivalentValue(index + 1) - 1;
+    }
+}
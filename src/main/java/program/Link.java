@@ -1,5 +1,7 @@
 package program;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 // Класс-модель для короткой ссылки
 public class Link {
     // Объявляем типы полей класса:
@@ -8,8 +10,15 @@ public class Link {
     private String originalUrl;     // исходная ссылка
     private long createTimeMs;      // время создания в мс)
     private long tlMinutes;         // время жизни ссылки (в минутах)
-    private long maxClicks;         // лимит переходов
-    private long currentClicks;     // сколько уже было переходов
+    private volatile long maxClicks; // лимит переходов
+    // сколько уже было переходов (атомарный счётчик: переходы могут идти из разных потоков)
+    private final AtomicLong currentClicks = new AtomicLong();
+    // Номер изменения полей, кроме счётчика переходов: по нему LinkService узнаёт,
+    // можно ли записать в хранилище только прирост переходов
+    private volatile long version;
+    // Состояние, записанное в хранилище: номер изменения (-1 — неизвестно) и число переходов
+    private volatile long storedVersion = -1;
+    private volatile long storedClicks;
 
     /*
     Объявляем конструктор класса.
@@ -57,9 +66,63 @@ public class Link {
         this.maxClicks = maxClicks;
     }
     public long getCurrentClicks() {
-        return currentClicks;
+        return currentClicks.get();
     }
     public void setCurrentClicks(long currentClicks) {
-        this.currentClicks = currentClicks;
+        this.currentClicks.set(currentClicks);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+    public long getStoredVersion() {
+        return storedVersion;
+    }
+    public long getStoredClicks() {
+        return storedClicks;
+    }
+
+    // Отмечает изменение полей, кроме счётчика переходов (ссылку нужно записать в хранилище целиком)
+    public void markChanged() {
+        version++;
+    }
+
+    // Запоминает состояние, которое сейчас лежит в хранилище
+    public void markStored(long version, long clicks) {
+        this.storedVersion = version;
+        this.storedClicks = clicks;
+    }
+
+    /*
+    Атомарно проверяет лимит и увеличивает счётчик переходов одним шагом CAS.
+    Возвращает false, если лимит уже исчерпан, поэтому при одновременных переходах
+    счётчик никогда не превысит maxClicks.
+    */
+    public boolean tryIncrementClicks() {
+        while (true) {
+            long clicks = currentClicks.get();
+            if (clicks >= maxClicks) {
+                return false;
+            }
+            if (currentClicks.compareAndSet(clicks, clicks + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Проверка достижения лимита переходов
+    public boolean isMaxClicksReached() {
+        return currentClicks.get() >= maxClicks;
+    }
+
+    // Момент (в мс), когда истекает время жизни ссылки
+    public long getExpireTimeMs() {
+        return createTimeMs + tlMinutes * 60_000;
+    }
+
+    // Проверка истечения срока жизни на момент nowMs
+    public boolean isExpired(long nowMs) {
+        return nowMs >= getExpireTimeMs();
     }
 }
+
@@ -0,0 +1,429 @@
+package program;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Команда массового импорта и выгрузки ссылок (настройки и хранилище берутся из config.txt):
+java -cp target/classes program.LinkBulkTool import <заявки.csv|заявки.jsonl> <результат>
+java -cp target/classes program.LinkBulkTool export <выгрузка.csv|выгрузка.jsonl> [uuid владельца]
+Запускать при остановленной программе.
+
+Импорт: строка CSV "owner,url,ttl_minutes,max_clicks" (первая строка с заголовком пропускается)
+или объект JSON {"owner":..,"url":..,"ttl_minutes":..,"max_clicks":..} на строку.
+Пустые ttl_minutes и max_clicks означают значения по умолчанию; к остальным применяются
+те же правила, что при создании ссылки из меню (меньшее время жизни, больший лимит).
+Файлы читаются и пишутся потоком, пачками по BATCH_SIZE ссылок, поэтому память не зависит от размера файла.
+В результат для каждой созданной ссылки пишется номер строки заявки и короткий код,
+ошибочные строки печатаются в консоль и пропускаются.
+*/
+public class LinkBulkTool {
+    private static final String CONFIG_FILE_PATH = "config.txt";
+    private static final String LINKS_FOLDER_PATH = "links";
+    private static final int BATCH_SIZE = 1000;
+    private static final String EXPORT_HEADER = "short_code,owner,url,create_time_ms,ttl_minutes,max_clicks,current_clicks";
+
+    public static void main(String[] args) {
+        if (args.length < 2 || !(args[0].equals("import") && args.length >= 3 || args[0].equals("export"))) {
+            System.out.println("Использование:");
+            System.out.println("  LinkBulkTool import <заявки.csv|заявки.jsonl> <результат>");
+            System.out.println("  LinkBulkTool export <выгрузка.csv|выгрузка.jsonl> [uuid владельца]");
+            System.exit(1);
+        }
+        File linksFolder = new File(LINKS_FOLDER_PATH);
+        if (!linksFolder.exists()) {
+            linksFolder.mkdirs();
+        }
+        ConfigService configService = new ConfigService(CONFIG_FILE_PATH);
+        LinkService linkService = new LinkService(Main.createLinkRepository(configService), configService);
+        linkService.start();
+        long startMs = System.currentTimeMillis();
+        try {
+            if (args[0].equals("import")) {
+                importLinks(linkService, configService, Paths.get(args[1]), Paths.get(args[2]), startMs);
+            } else {
+                exportLinks(linkService, Paths.get(args[1]), args.length > 2 ? args[2] : null, startMs);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Ошибка обработки файла: " + e.getMessage());
+            linkService.close();
+            System.exit(1);
+        }
+        linkService.close();
+    }
+
+    /*
+    Метод импорта: читает заявки построчно, создаёт ссылки пачками и сразу пишет коды в результат.
+    */
+    private static void importLinks(LinkService linkService, ConfigService configService,
+                                    Path input, Path output, long startMs) throws IOException {
+        boolean json = isJson(input);
+        long defaultTl = configService.getDefaultTlMinutes();
+        long defaultClicks = configService.getDefaultMaxClicks();
+        List<LinkRequest> batch = new ArrayList<>(BATCH_SIZE);
+        List<Long> batchLines = new ArrayList<>(BATCH_SIZE);
+        long lineNumber = 0;
+        long created = 0;
+        long failed = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            if (!json) {
+                writer.write("line,short_code,short_url,url");
+                writer.newLine();
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    String[] fields = json ? parseJsonLine(line) : parseCsvLine(line);
+                    // Заголовок CSV
+                    if (!json && lineNumber == 1 && fields[0].trim().equalsIgnoreCase("owner")) {
+                        continue;
+                    }
+                    batch.add(toRequest(fields, defaultTl, defaultClicks));
+                    batchLines.add(lineNumber);
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Строка " + lineNumber + ": " + e.getMessage());
+                    failed++;
+                }
+                if (batch.size() == BATCH_SIZE) {
+                    created += writeBatch(linkService, configService, batch, batchLines, writer, json, defaultTl, defaultClicks);
+                }
+            }
+            created += writeBatch(linkService, configService, batch, batchLines, writer, json, defaultTl, defaultClicks);
+        }
+        long elapsedMs = Math.max(1, System.currentTimeMillis() - startMs);
+        System.out.println("Создано ссылок: " + created + ", ошибочных строк: " + failed
+                + " (за " + elapsedMs + " мс, " + created * 1000 / elapsedMs + " ссылок/с)");
+    }
+
+    // Создаёт ссылки пачки и пишет их коды в результат
+    private static long writeBatch(LinkService linkService, ConfigService configService,
+                                   List<LinkRequest> batch, List<Long> batchLines, Writer writer,
+                                   boolean json, long defaultTl, long defaultClicks) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<Link> links = linkService.createLinks(batch, defaultTl, defaultClicks);
+        for (int i = 0; i < links.size(); i++) {
+            Link link = links.get(i);
+            String shortUrl = configService.getBaseUrl() + "/" + link.getShortCode();
+            if (json) {
+                writer.write("{\"line\":" + batchLines.get(i)
+                        + ",\"short_code\":" + jsonString(link.getShortCode())
+                        + ",\"short_url\":" + jsonString(shortUrl)
+                        + ",\"url\":" + jsonString(link.getOriginalUrl()) + "}");
+            } else {
+                writer.write(batchLines.get(i) + "," + csvField(link.getShortCode()) + ","
+                        + csvField(shortUrl) + "," + csvField(link.getOriginalUrl()));
+            }
+            writer.write('\n');
+        }
+        int size = links.size();
+        batch.clear();
+        batchLines.clear();
+        return size;
+    }
+
+    /*
+    Метод выгрузки: все ссылки или ссылки одного владельца пишутся в файл по одной.
+    */
+    private static void exportLinks(LinkService linkService, Path output, String ownerUuid,
+                                    long startMs) throws IOException {
+        boolean json = isJson(output);
+        long[] exported = {0};
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            if (!json) {
+                writer.write(EXPORT_HEADER);
+                writer.newLine();
+            }
+            if (ownerUuid != null) {
+                for (Link link : linkService.findByOwner(ownerUuid)) {
+                    writeLink(writer, link, json);
+                    exported[0]++;
+                }
+            } else {
+                linkService.forEachLink(link -> {
+                    try {
+                        writeLink(writer, link, json);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    exported[0]++;
+                });
+            }
+        }
+        long elapsedMs = Math.max(1, System.currentTimeMillis() - startMs);
+        System.out.println("Выгружено ссылок: " + exported[0]
+                + " (за " + elapsedMs + " мс, " + exported[0] * 1000 / elapsedMs + " ссылок/с)");
+    }
+
+    private static void writeLink(Writer writer, Link link, boolean json) throws IOException {
+        if (json) {
+            writer.write("{\"short_code\":" + jsonString(link.getShortCode())
+                    + ",\"owner\":" + jsonString(link.getOwnerUuid())
+                    + ",\"url\":" + jsonString(link.getOriginalUrl())
+                    + ",\"create_time_ms\":" + link.getCreateTimeMs()
+                    + ",\"ttl_minutes\":" + link.getTlMinutes()
+                    + ",\"max_clicks\":" + link.getMaxClicks()
+                    + ",\"current_clicks\":" + link.getCurrentClicks() + "}");
+        } else {
+            writer.write(csvField(link.getShortCode()) + "," + csvField(link.getOwnerUuid()) + ","
+                    + csvField(link.getOriginalUrl()) + "," + link.getCreateTimeMs() + ","
+                    + link.getTlMinutes() + "," + link.getMaxClicks() + "," + link.getCurrentClicks());
+        }
+        writer.write('\n');
+    }
+
+    // Поля заявки: владелец, ссылка, время жизни, лимит переходов
+    private static LinkRequest toRequest(String[] fields, long defaultTl, long defaultClicks) {
+        String owner = fields[0] == null ? "" : fields[0].trim();
+        String url = fields[1] == null ? "" : fields[1].trim();
+        if (owner.isEmpty()) {
+            throw new IllegalArgumentException("не указан владелец");
+        }
+        if (url.isEmpty()) {
+            throw new IllegalArgumentException("не указана исходная ссылка");
+        }
+        return new LinkRequest(owner, url,
+                parseNumber(fields[2], defaultTl, "ttl_minutes"),
+                parseNumber(fields[3], defaultClicks, "max_clicks"));
+    }
+
+    private static long parseNumber(String value, long defaultValue, String name) {
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("некорректное значение " + name + ": " + value);
+        }
+    }
+
+    private static boolean isJson(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".jsonl") || name.endsWith(".json") || name.endsWith(".ndjson");
+    }
+
+    /*
+    Разбор строки CSV (поля через запятую, поля в кавычках могут содержать запятые и "" вместо кавычки).
+    Возвращает 4 поля, недостающие — null.
+    */
+    static String[] parseCsvLine(String line) {
+        String[] fields = new String[4];
+        int field = 0;
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                if (field < fields.length) {
+                    fields[field] = current.toString();
+                }
+                field++;
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("незакрытая кавычка");
+        }
+        if (field < fields.length) {
+            fields[field] = current.toString();
+        }
+        return fields;
+    }
+
+    /*
+    Разбор плоского объекта JSON в одной строке (значения — строки, числа или null).
+    Возвращает поля owner, url, ttl_minutes, max_clicks; неизвестные поля пропускаются.
+    */
+    static String[] parseJsonLine(String line) {
+        Map<String, String> values = new HashMap<>();
+        JsonCursor cursor = new JsonCursor(line);
+        cursor.expect('{');
+        if (!cursor.consume('}')) {
+            do {
+                String key = cursor.readString();
+                cursor.expect(':');
+                values.put(key, cursor.readValue());
+            } while (cursor.consume(','));
+            cursor.expect('}');
+        }
+        cursor.expectEnd();
+        return new String[]{values.get("owner"), values.get("url"),
+                values.get("ttl_minutes"), values.get("max_clicks")};
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // Позиция разбора строки JSON
+    private static final class JsonCursor {
+        private final String text;
+        private int position;
+
+        JsonCursor(String text) {
+            this.text = text;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) {
+                throw new IllegalArgumentException("ожидался символ '" + c + "' в позиции " + position);
+            }
+        }
+
+        boolean consume(char c) {
+            skipSpaces();
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expectEnd() {
+            skipSpaces();
+            if (position != text.length()) {
+                throw new IllegalArgumentException("лишние символы после объекта в позиции " + position);
+            }
+        }
+
+        // Значение поля: строка, число, true/false или null (null возвращается как null)
+        String readValue() {
+            skipSpaces();
+            if (position < text.length() && text.charAt(position) == '"') {
+                return readString();
+            }
+            int start = position;
+            while (position < text.length() && ",} \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.isEmpty() || literal.charAt(0) == '{' || literal.charAt(0) == '[') {
+                throw new IllegalArgumentException("неподдерживаемое значение в позиции " + start);
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw new IllegalArgumentException("некорректная escape-последовательность");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("некорректная escape-последовательность");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        sb.append(escaped);
+                }
+            }
+            throw new IllegalArgumentException("незакрытая строка");
+        }
+
+        private void skipSpaces() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+}
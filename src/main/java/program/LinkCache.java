@@ -0,0 +1,419 @@
+package program;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+Ограниченный по памяти кеш ссылок с вытеснением по частоте обращений (W-TinyLFU).
+Новые ссылки попадают в небольшое окно (LRU), а в основную область (сегментированный LRU)
+допускаются, только если к ним обращались чаще, чем к кандидату на вытеснение.
+Частоты считает компактный скетч с 4-битными счётчиками, который периодически "стареет".
+Поэтому разовые проходы по многим ссылкам (список ссылок, удаление просроченных)
+не вытесняют популярные ссылки.
+
+Поддерживаются отрицательные записи (кода нет в хранилище) и учёт срока жизни ссылки:
+просроченная ссылка удаляется из кеша при первом обращении к ней.
+Если бюджет памяти не задан (maxBytes <= 0), кеш не ограничен и ничего не вытесняет.
+*/
+public class LinkCache {
+    // Возвращается из get для отрицательной записи: кода точно нет
+    public static final Link ABSENT = new Link();
+
+    // Доли бюджета: окно — 1%, защищённый сегмент — 80% основной области
+    private static final double WINDOW_FRACTION = 0.01;
+    private static final double PROTECTED_FRACTION = 0.8;
+    // Время жизни отрицательной записи
+    private static final long NEGATIVE_TTL_MS = 60_000;
+    // Примерный вес записи без учёта строк: объекты Link, AtomicLong, узел кеша и элемент ConcurrentHashMap
+    private static final long ENTRY_OVERHEAD_BYTES = 224;
+
+    // Метрики
+    private static final Metrics.Counter HITS = Metrics.counter("link_cache_requests_total{result=\"hit\"}", "Обращения к кешу ссылок");
+    private static final Metrics.Counter NEGATIVE_HITS = Metrics.counter("link_cache_requests_total{result=\"negative_hit\"}", "Обращения к кешу ссылок");
+    private static final Metrics.Counter MISSES = Metrics.counter("link_cache_requests_total{result=\"miss\"}", "Обращения к кешу ссылок");
+    private static final Metrics.Counter EVICTIONS = Metrics.counter("link_cache_evictions_total", "Ссылки, вытесненные из кеша");
+
+    private final boolean bounded;
+    private final long maxWeight;
+    private final long windowMax;
+    private final long protectedMax;
+
+    private final Map<String, Node> data = new ConcurrentHashMap<>();
+    // Структуры политики вытеснения меняются только под этой блокировкой
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final Deque window = new Deque();
+    private final Deque probation = new Deque();
+    private final Deque protectedQueue = new Deque();
+    private final FrequencySketch sketch;
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    public LinkCache(long maxBytes) {
+        this.bounded = maxBytes > 0;
+        this.maxWeight = maxBytes;
+        this.windowMax = Math.max(1, (long) (maxBytes * WINDOW_FRACTION));
+        this.protectedMax = (long) ((maxBytes - windowMax) * PROTECTED_FRACTION);
+        this.sketch = bounded ? new FrequencySketch(maxBytes / ENTRY_OVERHEAD_BYTES) : null;
+    }
+
+    // Регистрирует показатели кеша; вызывается после создания объекта
+    public void start() {
+        Metrics.gauge("link_cache_weight_bytes", "Оценка памяти, занятой кешем ссылок", this, LinkCache::getWeightedSize);
+        Metrics.gauge("link_cache_entries", "Записи в кеше ссылок", this, cache -> cache.data.size());
+    }
+
+    /*
+    Метод поиска в кеше.
+    Возвращает ссылку, ABSENT для отрицательной записи или null, если кода в кеше нет.
+    Просроченная ссылка возвращается последний раз и сразу удаляется из ограниченного кеша.
+    */
+    public Link get(String shortCode, long nowMs) {
+        Node node = data.get(shortCode);
+        if (node == null) {
+            MISSES.increment();
+            return null;
+        }
+        if (node.link == null) {
+            if (nowMs >= node.expireAtMs) {
+                invalidate(shortCode);
+                MISSES.increment();
+                return null;
+            }
+            NEGATIVE_HITS.increment();
+            return ABSENT;
+        }
+        HITS.increment();
+        if (bounded) {
+            if (nowMs >= node.expireAtMs) {
+                invalidate(shortCode);
+            } else if (evictionLock.tryLock()) {
+                // Порядок обращений обновляем, только если блокировка свободна: под нагрузкой
+                // часть обращений не учитывается, зато чтение никогда не ждёт
+                try {
+                    onAccess(node);
+                } finally {
+                    evictionLock.unlock();
+                }
+            }
+        }
+        return node.link;
+    }
+
+    // Ссылка в кеше без учёта обращения и проверки срока (null — ссылки в кеше нет или это отрицательная запись)
+    public Link peek(String shortCode) {
+        Node node = data.get(shortCode);
+        return node != null ? node.link : null;
+    }
+
+    // Помещает ссылку в кеш (заменяя отрицательную запись, если она была)
+    public void put(Link link) {
+        put(link.getShortCode(), link, link.getExpireTimeMs(), weigh(link));
+    }
+
+    // Запоминает, что кода нет в хранилище
+    public void putAbsent(String shortCode) {
+        put(shortCode, null, System.currentTimeMillis() + NEGATIVE_TTL_MS, ENTRY_OVERHEAD_BYTES + 2L * shortCode.length());
+    }
+
+    public void invalidate(String shortCode) {
+        if (!bounded) {
+            data.remove(shortCode);
+            return;
+        }
+        evictionLock.lock();
+        try {
+            Node node = data.remove(shortCode);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // Ограничен ли кеш (если нет — в нём лежат все ссылки)
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    public long getWeightedSize() {
+        return windowWeight + probationWeight + protectedWeight;
+    }
+
+    // Статистика
+    public long getHitCount() {
+        return HITS.get() + NEGATIVE_HITS.get();
+    }
+
+    public long getMissCount() {
+        return MISSES.get();
+    }
+
+    public long getEvictionCount() {
+        return EVICTIONS.get();
+    }
+
+    private void put(String shortCode, Link link, long expireAtMs, long weight) {
+        if (!bounded) {
+            data.put(shortCode, new Node(shortCode, link, expireAtMs, weight));
+            return;
+        }
+        evictionLock.lock();
+        try {
+            Node node = data.get(shortCode);
+            if (node != null) {
+                // Обновляем существующую запись, вес пересчитываем в её сегменте
+                addWeight(node, weight - node.weight);
+                node.link = link;
+                node.expireAtMs = expireAtMs;
+                node.weight = weight;
+                onAccess(node);
+            } else {
+                node = new Node(shortCode, link, expireAtMs, weight);
+                data.put(shortCode, node);
+                sketch.increment(shortCode);
+                node.queue = window;
+                window.addLast(node);
+                windowWeight += weight;
+            }
+            evict();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /*
+    Учёт обращения: окно и защищённый сегмент — обычный LRU,
+    из испытательного сегмента запись при повторном обращении переходит в защищённый.
+    */
+    private void onAccess(Node node) {
+        sketch.increment(node.key);
+        if (node.queue == window) {
+            window.moveToLast(node);
+        } else if (node.queue == probation) {
+            probation.remove(node);
+            probationWeight -= node.weight;
+            node.queue = protectedQueue;
+            protectedQueue.addLast(node);
+            protectedWeight += node.weight;
+            // Переполненный защищённый сегмент сбрасывает старые записи обратно в испытательный
+            while (protectedWeight > protectedMax && protectedQueue.first != null) {
+                Node demoted = protectedQueue.pollFirst();
+                protectedWeight -= demoted.weight;
+                demoted.queue = probation;
+                probation.addLast(demoted);
+                probationWeight += demoted.weight;
+            }
+        } else if (node.queue == protectedQueue) {
+            protectedQueue.moveToLast(node);
+        }
+    }
+
+    /*
+    Вытеснение: записи, вышедшие из окна, соревнуются с самой старой записью основной области.
+    Остаётся та, к которой обращались чаще (по оценке скетча).
+    */
+    private void evict() {
+        long mainMax = maxWeight - windowMax;
+        while (windowWeight > windowMax && window.first != null) {
+            Node candidate = window.pollFirst();
+            windowWeight -= candidate.weight;
+
+            boolean admitted = true;
+            while (probationWeight + protectedWeight + candidate.weight > mainMax) {
+                Node victim = probation.first != null ? probation.first : protectedQueue.first;
+                if (victim == null) {
+                    break;
+                }
+                if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                    evictNode(victim);
+                } else {
+                    admitted = false;
+                    break;
+                }
+            }
+            if (admitted) {
+                candidate.queue = probation;
+                probation.addLast(candidate);
+                probationWeight += candidate.weight;
+            } else {
+                candidate.queue = null;
+                data.remove(candidate.key, candidate);
+                EVICTIONS.increment();
+            }
+        }
+    }
+
+    private void evictNode(Node node) {
+        unlink(node);
+        data.remove(node.key, node);
+        EVICTIONS.increment();
+    }
+
+    // Убирает запись из её сегмента
+    private void unlink(Node node) {
+        if (node.queue == null) {
+            return;
+        }
+        node.queue.remove(node);
+        addWeight(node, -node.weight);
+        node.queue = null;
+    }
+
+    private void addWeight(Node node, long delta) {
+        if (node.queue == window) {
+            windowWeight += delta;
+        } else if (node.queue == probation) {
+            probationWeight += delta;
+        } else if (node.queue == protectedQueue) {
+            protectedWeight += delta;
+        }
+    }
+
+    // Оценка памяти, занимаемой ссылкой в кеше (строки в Java хранятся до 2 байт на символ)
+    private static long weigh(Link link) {
+        return ENTRY_OVERHEAD_BYTES + 2L * (link.getShortCode().length()
+                + link.getOwnerUuid().length() + link.getOriginalUrl().length());
+    }
+
+    // Запись кеша; link == null означает отрицательную запись
+    private static final class Node {
+        private final String key;
+        private volatile Link link;
+        private volatile long expireAtMs;
+        private long weight;
+        private Deque queue;
+        private Node prev;
+        private Node next;
+
+        private Node(String key, Link link, long expireAtMs, long weight) {
+            this.key = key;
+            this.link = link;
+            this.expireAtMs = expireAtMs;
+            this.weight = weight;
+        }
+    }
+
+    // Двусвязный список записей одного сегмента (первый — давно не использовавшийся)
+    private static final class Deque {
+        private Node first;
+        private Node last;
+
+        private void addLast(Node node) {
+            node.prev = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+        }
+
+        private Node pollFirst() {
+            Node node = first;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        private void remove(Node node) {
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        private void moveToLast(Node node) {
+            if (last != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    /*
+    Скетч частот: 4 строки 4-битных счётчиков, упакованных по 16 в long.
+    Когда число увеличений достигает 10 размеров таблицы, все счётчики делятся пополам,
+    поэтому старая популярность постепенно забывается.
+    */
+    private static final class FrequencySketch {
+        private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(long expectedEntries) {
+            int size = (int) Math.min(1 << 30, Math.max(64, Long.highestOneBit(Math.max(1, expectedEntries)) << 1));
+            this.table = new long[size];
+            this.tableMask = size - 1;
+            this.sampleSize = 10 * size;
+        }
+
+        private int frequency(String key) {
+            int hash = spread(key.hashCode());
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int offset = counterOffset(hash, i);
+                frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 0xF));
+            }
+            return frequency;
+        }
+
+        private void increment(String key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int offset = counterOffset(hash, i);
+                if (((table[index] >>> offset) & 0xF) != 0xF) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions /= 2;
+        }
+
+        private int indexOf(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            h += h >>> 32;
+            return (int) h & tableMask;
+        }
+
+        // Какой из 16 счётчиков в long использовать (в каждой строке — своя четвёрка)
+        private static int counterOffset(int hash, int row) {
+            return (((hash >>> (row << 3)) & 3) + (row << 2)) << 2;
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
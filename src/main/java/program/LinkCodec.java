@@ -0,0 +1,224 @@
+package program;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/*
+Двоичный формат записи ссылки.
+
+Порядок полей (big-endian):
+  версия формата (1 байт), флаги (1 байт),
+  код ссылки: длина (1 байт) + UTF-8,
+  владелец: UUID как два long (флаг FLAG_UUID_OWNER) или длина (2 байта) + UTF-8,
+  createTimeMs, tlMinutes, maxClicks, currentClicks (по 8 байт),
+  исходный URL: длина (4 байта) + UTF-8,
+  CRC32C всех предыдущих байт (4 байта).
+
+Кодирование пишет прямо в ByteBuffer, без промежуточных массивов и строк.
+*/
+public final class LinkCodec {
+    public static final byte VERSION = 1;
+    // Владелец записан как UUID в двух long
+    private static final byte FLAG_UUID_OWNER = 1;
+    // Версия, флаги, длина кода, четыре числа, длина URL и контрольная сумма
+    private static final int FIXED_BYTES = 1 + 1 + 1 + 4 * Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private LinkCodec() {
+    }
+
+    // Размер записи ссылки в байтах
+    public static int encodedSize(Link link) {
+        String owner = link.getOwnerUuid();
+        int ownerBytes = isCanonicalUuid(owner) ? 2 * Long.BYTES : Short.BYTES + utf8Length(owner);
+        return FIXED_BYTES + utf8Length(link.getShortCode()) + ownerBytes + utf8Length(link.getOriginalUrl());
+    }
+
+    public static byte[] encode(Link link) {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(link));
+        encode(link, buffer);
+        return buffer.array();
+    }
+
+    /*
+    Метод записывает ссылку в буфер с его текущей позиции и сдвигает позицию за конец записи.
+    В буфере должно быть не меньше encodedSize(link) свободных байт.
+    */
+    public static void encode(Link link, ByteBuffer buffer) {
+        int start = buffer.position();
+        String owner = link.getOwnerUuid();
+        boolean uuidOwner = isCanonicalUuid(owner);
+
+        buffer.put(VERSION);
+        buffer.put(uuidOwner ? FLAG_UUID_OWNER : 0);
+        String shortCode = link.getShortCode();
+        int codeLength = utf8Length(shortCode);
+        if (codeLength > 0xFF) {
+            throw new IllegalArgumentException("Слишком длинный код ссылки: " + codeLength + " байт");
+        }
+        buffer.put((byte) codeLength);
+        writeUtf8(buffer, shortCode);
+        if (uuidOwner) {
+            buffer.putLong(parseHex(owner, 0, 18));
+            buffer.putLong(parseHex(owner, 19, 36));
+        } else {
+            int ownerLength = utf8Length(owner);
+            if (ownerLength > 0xFFFF) {
+                throw new IllegalArgumentException("Слишком длинный идентификатор владельца: " + ownerLength + " байт");
+            }
+            buffer.putShort((short) ownerLength);
+            writeUtf8(buffer, owner);
+        }
+        buffer.putLong(link.getCreateTimeMs());
+        buffer.putLong(link.getTlMinutes());
+        buffer.putLong(link.getMaxClicks());
+        buffer.putLong(link.getCurrentClicks());
+        String url = link.getOriginalUrl();
+        buffer.putInt(utf8Length(url));
+        writeUtf8(buffer, url);
+        buffer.putInt(checksum(buffer, start, buffer.position()));
+    }
+
+    /*
+    Метод читает ссылку из буфера с его текущей позиции и сдвигает позицию за конец записи.
+    Бросает IllegalArgumentException, если версия неизвестна, запись обрезана или не сходится контрольная сумма.
+    */
+    public static Link decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Неизвестная версия формата ссылки: " + version);
+            }
+            byte flags = buffer.get();
+            Link link = new Link();
+            link.setShortCode(readUtf8(buffer, buffer.get() & 0xFF));
+            if ((flags & FLAG_UUID_OWNER) != 0) {
+                link.setOwnerUuid(new UUID(buffer.getLong(), buffer.getLong()).toString());
+            } else {
+                link.setOwnerUuid(readUtf8(buffer, buffer.getShort() & 0xFFFF));
+            }
+            link.setCreateTimeMs(buffer.getLong());
+            link.setTlMinutes(buffer.getLong());
+            link.setMaxClicks(buffer.getLong());
+            link.setCurrentClicks(buffer.getLong());
+            int urlLength = buffer.getInt();
+            if (urlLength < 0 || urlLength > buffer.remaining() - Integer.BYTES) {
+                throw new IllegalArgumentException("Некорректная длина URL: " + urlLength);
+            }
+            link.setOriginalUrl(readUtf8(buffer, urlLength));
+            int expected = checksum(buffer, start, buffer.position());
+            if (buffer.getInt() != expected) {
+                throw new IllegalArgumentException("Не сходится контрольная сумма записи ссылки");
+            }
+            return link;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Запись ссылки обрезана");
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int from, int to) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().limit(to).position(from));
+        return (int) crc.getValue();
+    }
+
+    /*
+    Владелец хранится в двух long, только если это UUID в каноническом виде
+    (36 символов, строчные шестнадцатеричные цифры) — тогда при чтении получится та же строка.
+    */
+    private static boolean isCanonicalUuid(String value) {
+        if (value.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = value.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Разбирает 16 шестнадцатеричных цифр из value[from, to), пропуская дефисы
+    private static long parseHex(String value, int from, int to) {
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c != '-') {
+                result = (result << 4) | Character.digit(c, 16);
+            }
+        }
+        return result;
+    }
+
+    /*
+    Работа с UTF-8 без промежуточных массивов.
+    Одиночные суррогаты кодируются как '?', так же, как в String.getBytes.
+    */
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static void writeUtf8(ByteBuffer buffer, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static String readUtf8(ByteBuffer buffer, int length) {
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+}
@@ -2,10 +2,13 @@ package program;
 
 import java.awt.Desktop; // используется для открытия URL в стандартном браузере пользователя.
 import java.net.URI; // используется для работы с URL-адресами.
+import java.util.List;
 import java.util.Scanner;
-import java.io.File;
 
 public class LinkController {
+    private static final LatencyHistogram REDIRECT_LATENCY =
+            Metrics.histogram("redirect_seconds{source=\"console\"}", "Время обработки перехода по ссылке");
+
     // Объявляем поля класса
     private final LinkService linkService; // сервис для управления короткими ссылками
     private final ConfigService configService; // сервис для доступа к параметрам
@@ -77,40 +80,20 @@ public class LinkController {
             return;
         }
 
-        File folder = new File("links");
-        File[] files = folder.listFiles();
-        if (files == null) {
-            System.out.println("Нет ссылок!");
+        // Берём ссылки пользователя из индекса владельцев в LinkService
+        List<Link> userLinks = linkService.findByOwner(currentUser.getUuid());
+        if (userLinks.isEmpty()) {
+            System.out.println("У вас ещё нет ссылок.");
             return;
         }
 
-        // Проверяем есть ли ссылки и если нет, выводим ошибку
-        boolean foundAny = false;
-        /*
-        Проходим по каждому файлу в папке и проверяем является ли файлом (а не директорией),
-        и что его имя файла заканчивается на .txt
-        */
-        for (File f : files) {
-            if (f.isFile() && f.getName().endsWith(".txt")) {
-                Link link = linkService.loadLink(f.getName().replace(".txt", ""));
-                /*
-                Проверяем, что загруженная ссылка не null (т.е. успешно загружена)
-                и что её ownerUuid совпадает с UUID текущего пользователя,
-                а затем выводим информацию
-                 */
-                if (link != null && link.getOwnerUuid().equals(currentUser.getUuid())) {
-                    foundAny = true;
-                    String shortUrl = configService.getBaseUrl() + "/" + link.getShortCode();
-                    System.out.println("ShortURL: " + shortUrl +
-                            ", \nOriginal: " + link.getOriginalUrl() +
-                            ", \nTime Limit (min): " + link.getTlMinutes() +
-                            ", \nUsed: " + link.getCurrentClicks() +
-                            ", \nLimit: " + link.getMaxClicks());
-                }
-            }
-        }
-        if (!foundAny) {
-            System.out.println("У вас ещё нет ссылок.");
+        for (Link link : userLinks) {
+            String shortUrl = configService.getBaseUrl() + "/" + link.getShortCode();
+            System.out.println("ShortURL: " + shortUrl +
+                    ", \nOriginal: " + link.getOriginalUrl() +
+                    ", \nTime Limit (min): " + link.getTlMinutes() +
+                    ", \nUsed: " + link.getCurrentClicks() +
+                    ", \nLimit: " + link.getMaxClicks());
         }
     }
 
@@ -129,32 +112,26 @@ public class LinkController {
         }
 
         // Теперь в input — только код ссылки
+        long startNs = System.nanoTime();
         Link link = linkService.loadLink(input);
-        if (link == null) {
-            System.out.println("Ссылка не найдена!");
-            return;
-        }
 
-        // Проверяем срок жизни
-        long now = System.currentTimeMillis();
-        long age = now - link.getCreateTimeMs();
-        long ttlMillis = link.getTlMinutes() * 60_000;
-        if (age >= ttlMillis) {
-            System.out.println("Ссылка просрочена!");
-            linkService.deleteLink(link.getShortCode());
-            return;
-        }
-
-        // Проверяем лимит переходов
-        if (link.getCurrentClicks() >= link.getMaxClicks()) {
-            System.out.println("Лимит переходов исчерпан)!");
-            return;
+        // Проверяем срок жизни и лимит переходов, при успехе счётчик увеличивается атомарно
+        ClickStatus status = linkService.registerClick(link);
+        REDIRECT_LATENCY.recordSince(startNs);
+        switch (status) {
+            case NOT_FOUND:
+                System.out.println("Ссылка не найдена!");
+                return;
+            case EXPIRED:
+                System.out.println("Ссылка просрочена!");
+                return;
+            case LIMIT_REACHED:
+                System.out.println("Лимит переходов исчерпан)!");
+                return;
+            default:
+                break;
         }
 
-        // Увеличиваем счётчик переходов
-        link.setCurrentClicks(link.getCurrentClicks() + 1);
-        linkService.saveLinkToFile(link);
-
         // Открываем ссылку в браузере
         try {
             Desktop.getDesktop().browse(new URI(link.getOriginalUrl()));
@@ -212,11 +189,13 @@ public class LinkController {
         }
 
         // Обновляем лимит переходов, учитывая значение из конфигурации
-        long finalLimit = Math.max(newLimit, configService.getDefaultMaxClicks());
-        link.setMaxClicks(finalLimit);
-        linkService.saveLinkToFile(link);
+        link = linkService.editLinkLimit(link, newLimit, configService.getDefaultMaxClicks());
+        if (link == null) {
+            System.out.println("Ссылка не найдена!");
+            return;
+        }
 
-        System.out.println("Лимит переходов обновлён до: " + finalLimit);
+        System.out.println("Лимит переходов обновлён до: " + link.getMaxClicks());
     }
 
     /*
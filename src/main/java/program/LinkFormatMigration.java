@@ -0,0 +1,23 @@
+package program;
+
+import java.io.IOException;
+
+/*
+Разовая команда перевода папки ссылок из текстового формата в двоичный (LinkCodec):
+java -cp target/classes program.LinkFormatMigration [папка ссылок, по умолчанию links]
+Запускать при остановленной программе.
+*/
+public class LinkFormatMigration {
+    public static void main(String[] args) {
+        String folder = args.length > 0 ? args[0] : "links";
+        long startMs = System.currentTimeMillis();
+        try {
+            long migrated = new FileLinkRepository(folder).migrateTextFiles();
+            System.out.println("Переведено ссылок в двоичный формат: " + migrated
+                    + " (за " + (System.currentTimeMillis() - startMs) + " мс)");
+        } catch (IOException e) {
+            System.out.println("Ошибка перевода ссылок в папке " + folder + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package program;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/*
+Интерфейс хранилища ссылок.
+LinkService держит ссылки в памяти и через этот интерфейс загружает их при старте
+и сохраняет изменения при отложенной записи.
+Реализации выбираются параметром LINK_STORAGE: file (FileLinkRepository), log (LogLinkRepository),
+slot (SlotLinkRepository) и memory (InMemoryLinkRepository).
+*/
+public interface LinkRepository {
+    // Потоково передаёт все сохранённые ссылки в consumer (используется при старте)
+    void forEach(Consumer<Link> consumer);
+
+    // Загружает ссылку по коду, или null, если её нет
+    Link get(String shortCode);
+
+    /*
+    Сохраняет новую ссылку или новое состояние существующей.
+    Счётчик переходов записывается как есть и заменяет прирост, сделанный incrementClicks до put;
+    одновременные put и incrementClicks одной ссылки не должны перемешивать свои записи.
+    */
+    void put(Link link);
+
+    /*
+    Сохраняет пачку ссылок, как put для каждой.
+    По умолчанию пишет их по одной; хранилища, которые умеют записать пачку дешевле
+    (одной блокировкой и одной записью в файл), переопределяют метод.
+    */
+    default void putAll(Collection<Link> links) {
+        for (Link link : links) {
+            put(link);
+        }
+    }
+
+    /*
+    Атомарно увеличивает счётчик переходов сохранённой ссылки на delta:
+    одновременные увеличения не теряются. Возвращает новое значение или -1, если ссылки нет.
+    */
+    long incrementClicks(String shortCode, long delta);
+
+    // Удаляет ссылку по коду
+    void delete(String shortCode);
+
+    // Гарантирует, что сделанные изменения дошли до диска
+    void flush();
+
+    // Освобождает ресурсы хранилища
+    void close();
+
+    /*
+    Передаёт в consumer все ссылки владельца.
+    По умолчанию перебирает все ссылки; хранилища с индексом владельцев переопределяют метод.
+    */
+    default void forEachByOwner(String ownerUuid, Consumer<Link> consumer) {
+        forEach(link -> {
+            if (ownerUuid.equals(link.getOwnerUuid())) {
+                consumer.accept(link);
+            }
+        });
+    }
+
+    // Передаёт в consumer все ссылки, срок жизни которых истёк к моменту nowMs
+    default void forEachExpired(long nowMs, Consumer<Link> consumer) {
+        forEach(link -> {
+            if (link.isExpired(nowMs)) {
+                consumer.accept(link);
+            }
+        });
+    }
+}
@@ -0,0 +1,34 @@
+package program;
+
+/*
+Заявка на создание короткой ссылки при массовом импорте.
+*/
+public class LinkRequest {
+    private final String ownerUuid;    // uuid владельца ссылки
+    private final String originalUrl;  // исходная ссылка
+    private final long tlMinutes;      // запрошенное время жизни (в минутах)
+    private final long maxClicks;      // запрошенный лимит переходов
+
+    public LinkRequest(String ownerUuid, String originalUrl, long tlMinutes, long maxClicks) {
+        this.ownerUuid = ownerUuid;
+        this.originalUrl = originalUrl;
+        this.tlMinutes = tlMinutes;
+        this.maxClicks = maxClicks;
+    }
+
+    public String getOwnerUuid() {
+        return ownerUuid;
+    }
+
+    public String getOriginalUrl() {
+        return originalUrl;
+    }
+
+    public long getTlMinutes() {
+        return tlMinutes;
+    }
+
+    public long getMaxClicks() {
+        return maxClicks;
+    }
+}
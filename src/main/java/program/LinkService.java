@@ -1,35 +1,308 @@
 package program;
 
-import java.io.*;
-import java.util.Random;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 // Класс для работы с короткими ссылками
 public class LinkService {
-    // Объявляем тип поля класса, который Хранит путь к папке, где будут находиться файлы ссылок
-    private final String linksFolderPath;
+    // Метрики
+    private static final LatencyHistogram CREATE_LATENCY =
+            Metrics.histogram("link_create_seconds", "Время создания ссылки");
+    private static final LatencyHistogram LOOKUP_LATENCY =
+            Metrics.histogram("link_lookup_seconds", "Время поиска ссылки по коду");
+    private static final Metrics.Counter LOOKUP_HITS =
+            Metrics.counter("link_lookups_total{result=\"hit\"}", "Поиски ссылки по коду");
+    private static final Metrics.Counter LOOKUP_MISSES =
+            Metrics.counter("link_lookups_total{result=\"miss\"}", "Поиски ссылки по коду");
+    private static final LatencyHistogram FLUSH_LATENCY =
+            Metrics.histogram("link_flush_seconds", "Время сброса отложенной записи на диск");
+    private static final Metrics.Counter FLUSHED_CHANGES =
+            Metrics.counter("link_flushed_changes_total", "Изменения ссылок, записанные на диск");
+    private static final Metrics.Counter FLUSHED_CLICK_INCREMENTS =
+            Metrics.counter("link_flushed_click_increments_total",
+                    "Изменения ссылок, записанные в хранилище только приростом счётчика переходов");
+    private static final LatencyHistogram SNAPSHOT_LATENCY =
+            Metrics.histogram("link_snapshot_seconds", "Время записи снимка ссылок");
+    private static final Metrics.Counter DEDUP_HITS =
+            Metrics.counter("link_dedup_total{result=\"hit\"}", "Проверки повторного создания ссылки");
+    private static final Metrics.Counter DEDUP_MISSES =
+            Metrics.counter("link_dedup_total{result=\"miss\"}", "Проверки повторного создания ссылки");
+    private static final Metrics.Counter CODE_FILTER_REJECTS =
+            Metrics.counter("link_code_filter_total{result=\"rejected\"}", "Проверки кода по фильтру Блума");
+    private static final Metrics.Counter CODE_FILTER_FALSE_POSITIVES =
+            Metrics.counter("link_code_filter_total{result=\"false_positive\"}", "Проверки кода по фильтру Блума");
+    // Счётчики переходов по результату (индекс — ClickStatus.ordinal())
+    private static final Metrics.Counter[] CLICKS = new Metrics.Counter[ClickStatus.values().length];
+
+    static {
+        for (ClickStatus status : ClickStatus.values()) {
+            CLICKS[status.ordinal()] = Metrics.counter(
+                    "link_clicks_total{status=\"" + status.name().toLowerCase(Locale.ROOT) + "\"}", "Попытки перехода по ссылкам");
+        }
+    }
+
+    // Отметка в очереди отложенной записи: ссылка удалена
+    private static final Link DELETED = new Link();
+    // Типы записей журнала упреждающей записи
+    private static final byte WAL_PUT = 1;      // ссылка целиком (создание, изменение лимита)
+    private static final byte WAL_CLICKS = 2;   // код и новое значение счётчика переходов
+    private static final byte WAL_DELETE = 3;   // код удалённой ссылки
+    private static final String SNAPSHOT_MAGIC = "LNKSNAP1";
+    // Сколько ссылок отложенная запись передаёт в хранилище одним вызовом putAll
+    private static final int WRITE_BATCH_SIZE = 1000;
+    // Число блокировок по кодам ссылок при ограниченном кеше
+    private static final int LINK_LOCK_STRIPES = 1024;
+    // На сколько оставшийся срок повторной ссылки может быть короче запрошенного
+    private static final long DEDUP_TTL_TOLERANCE_MS = 60_000;
+
+    // Хранилище ссылок на диске (файлы в папке links или журнал сегментов)
+    private final LinkRepository repository;
+    // Журнал упреждающей записи: изменение подтверждается, только когда оно на диске (null — журнал выключен)
+    private final WriteAheadLog wal;
+    // Снимок всех ссылок: при запуске читается вместо обхода хранилища
+    private final Path snapshotFile;
+    // Сегмент журнала, с которого проигрывается последний снимок: более ранние сегменты можно удалять
+    private volatile long snapshotSegment = Long.MAX_VALUE;
+    // Изменения ссылок после последнего снимка
+    private final AtomicLong changesSinceSnapshot = new AtomicLong();
+    // Кеш ссылок в памяти (ключ — код ссылки). Если бюджет памяти не задан, в нём лежат все ссылки
+    private final LinkCache cache;
+    // Вторичный индекс: uuid владельца -> коды его ссылок
+    private final Map<String, Set<String>> codesByOwner = new ConcurrentHashMap<>();
+    // Индекс повторных ссылок: (владелец, URL) -> код (null — повторы не ищутся)
+    private final DedupIndex dedupIndex;
+    /*
+    Очередь отложенной записи: ссылки, изменения которых ещё не сброшены на диск (DELETED — удалённые).
+    Пока ссылка здесь, она не может быть вытеснена из памяти, поэтому все переходы
+    по одному коду считаются на одном объекте.
+    */
+    private final Map<String, Link> pending = new ConcurrentHashMap<>();
+    // В хранилище есть записи, ещё не сброшенные на диск его flush (под блокировкой this)
+    private boolean unsyncedWrites;
+    /*
+    Блокировки по кодам ссылок при ограниченном кеше (null — кеш не ограничен).
+    Под блокировкой кода ссылка читается из хранилища, закрепляется в очереди при переходе
+    и открепляется после записи на диск, поэтому незакреплённая ссылка, которой нет в кеше,
+    в хранилище всегда актуальна.
+    */
+    private final Lock[] linkLocks;
+    // Количество живых ссылок
+    private final AtomicLong liveCount = new AtomicLong();
+    // Фильтр Блума по кодам живых ссылок: несуществующий код отбрасывается без обращения к кешу и диску
+    private volatile BloomFilter codeFilter;
+    // Фильтр, который сейчас перестраивается: коды новых ссылок добавляются в оба
+    private volatile BloomFilter rebuildingFilter;
+    private final ReadWriteLock codeFilterLock = new ReentrantReadWriteLock();
+    private final Path codeFilterFile;
+    private final long codeFilterExpectedLinks;
+    private final double codeFilterFalsePositiveRate;
+    // Фильтр прочитан из файла: при загрузке ссылок коды в него не добавляются
+    private boolean codeFilterRestored;
+    // Удаления с последнего построения фильтра (удалённые коды остаются в фильтре до перестроения)
+    private final AtomicLong deletedSinceFilterBuild = new AtomicLong();
+    // Фоновый поток, который периодически сбрасывает изменения на диск
+    private final ScheduledExecutorService flusher;
+    // Периоды фоновых задач: сброс изменений, перестроение фильтра кодов, снимок
+    private final long flushIntervalMs;
+    private final long filterRebuildMs;
+    private final long snapshotMs;
+    // Планировщик удаления ссылок по истечении срока жизни
+    private final ExpiryScheduler expiryScheduler;
+    // Выдача кодов новых ссылок
+    private final ShortCodeAllocator shortCodeAllocator;
+    // История переходов по ссылкам (null — выключена)
+    private final ClickAnalytics clickAnalytics;
+    // Получатели изменений ссылок (поток репликации на ведущем узле)
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    // На реплике переходы пересылаются ведущему узлу (null — этот узел ведущий или работает один)
+    private volatile ClickForwarder clickForwarder;
+    private volatile boolean closed = false;
 
     /*
     Объявляем конструктор класса.
+    Загружаем ссылки из хранилища в кеш (все или сколько поместится в бюджет памяти), ставим их сроки в планировщик удаления
+    и проигрываем журнал упреждающей записи. Фоновую работу запускает start().
+    */
+    public LinkService(LinkRepository repository, ConfigService configService) {
+        this.repository = repository;
+        this.wal = configService.isWalEnabled()
+                ? new WriteAheadLog(configService.getWalPath(), configService.getWalGroupCommitMs())
+                : null;
+        this.cache = new LinkCache(configService.getCacheMaxBytes());
+        this.linkLocks = cache.isBounded() ? newLinkLocks() : null;
+        this.dedupIndex = configService.isDedupEnabled() ? new DedupIndex() : null;
+        this.shortCodeAllocator = createShortCodeAllocator(configService);
+        this.expiryScheduler = new ExpiryScheduler(this::expireIfDue, configService.getExpirySweepIntervalMs());
+        this.clickAnalytics = configService.isAnalyticsEnabled()
+                ? new ClickAnalytics(configService.getAnalyticsFile(), configService.getAnalyticsBufferSize(),
+                        configService.getAnalyticsFlushMs(), configService.getAnalyticsMinuteRetentionMs(),
+                        new HeavyHitters(configService.getTopLinksWindowsMs(), configService.getTopLinksSize(),
+                                configService.getTopLinksSketchWidth()))
+                : null;
+
+        this.codeFilterFile = Paths.get(configService.getBloomFilterFile());
+        this.codeFilterExpectedLinks = configService.getBloomExpectedLinks();
+        this.codeFilterFalsePositiveRate = configService.getBloomFalsePositiveRate();
+        BloomFilter storedFilter = BloomFilter.readFrom(codeFilterFile);
+        this.codeFilter = storedFilter != null ? storedFilter : newCodeFilter(0);
+        this.codeFilterRestored = storedFilter != null;
+        // Сохранённый фильтр верен только до первого изменения: файл удаляем,
+        // чтобы после аварийного завершения не прочитать устаревший фильтр
+        deleteCodeFilterFile();
+
+        this.snapshotFile = Paths.get(configService.getLinkSnapshotFile());
+        if (!loadSnapshot()) {
+            loadAllLinks();
+        }
+        // Сохранённый фильтр устарел, если в нём меньше кодов, чем загружено ссылок
+        // (например, хранилище изменяли без этой программы); строим его заново по индексу владельцев
+        if (codeFilterRestored && codeFilter.getInsertions() < liveCount.get()) {
+            System.out.println("Сохранённый фильтр кодов ссылок устарел, строится заново");
+            rebuildCodeFilter();
+        } else if (codeFilter.getInsertions() > codeFilter.getExpectedInsertions()) {
+            rebuildCodeFilter();
+        }
+        codeFilterRestored = false;
+        if (wal != null) {
+            // Изменения после последней контрольной точки: применяем и сразу записываем в хранилище
+            long replayed = wal.replay(snapshotSegment == Long.MAX_VALUE ? 0 : snapshotSegment, this::applyWalRecord);
+            if (replayed > 0) {
+                System.out.println("Восстановлено изменений ссылок из журнала: " + replayed);
+            }
+            changesSinceSnapshot.set(replayed);
+        }
+
+        this.flushIntervalMs = configService.getWriteBehindFlushMs();
+        this.filterRebuildMs = configService.getBloomRebuildIntervalMs();
+        this.snapshotMs = configService.getSnapshotIntervalMs();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "link-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+    Метод запускает фоновую работу сервиса: запись журнала, удаление просроченных ссылок,
+    фоновую запись изменений и показатели. Вызывается один раз после создания объекта.
+    Изменения, восстановленные из журнала, сразу записываются в хранилище.
     */
-    public LinkService(String linksFolderPath) {
-        this.linksFolderPath = linksFolderPath;
+    public void start() {
+        if (wal != null) {
+            wal.start();
+            flush();
+        }
+        cache.start();
+        expiryScheduler.start();
+        if (clickAnalytics != null) {
+            clickAnalytics.start();
+        }
+
+        Metrics.gauge("links_live", "Количество живых ссылок", this, service -> service.liveCount.get());
+        if (dedupIndex != null) {
+            Metrics.gauge("link_dedup_index_entries", "Записи индекса повторных ссылок", dedupIndex, DedupIndex::size);
+        }
+        Metrics.gauge("link_lookup_hit_ratio", "Доля успешных поисков ссылки по коду", () -> {
+            long hits = LOOKUP_HITS.get();
+            long total = hits + LOOKUP_MISSES.get();
+            return total == 0 ? 0 : (double) hits / total;
+        });
+
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::rebuildCodeFilterIfNeeded, filterRebuildMs, filterRebuildMs, TimeUnit.MILLISECONDS);
+        if (wal != null) {
+            // Без журнала изменения после снимка не восстановить, поэтому снимок пишется только при завершении
+            flusher.scheduleWithFixedDelay(this::writeSnapshotIfChanged, snapshotMs, snapshotMs, TimeUnit.MILLISECONDS);
+        }
     }
 
     /*
     Метод создания новой короткой ссылки.
+    Если включён поиск повторов и у владельца уже есть действующая ссылка на тот же URL,
+    у которой осталось не меньше запрошенных времени жизни и переходов, возвращается она, новый код не выдаётся.
     */
     public Link createLink(String ownerUuid, String originalUrl,
                            long requestedTl, long defaultTl,
                            long requestedClicks, long defaultClicks) {
-
+        long startNs = System.nanoTime();
         // Рассчитать фактическое время жизни actual time limit (min)
         long actualTl = Math.min(requestedTl, defaultTl);
         // Рассчитать фактический лимит переходов actual max clicks (max)
         long actualMc = Math.max(requestedClicks, defaultClicks);
 
+        checkWritable();
+        Link link = findDuplicate(ownerUuid, originalUrl, actualTl, actualMc);
+        if (link == null) {
+            link = newLink(ownerUuid, originalUrl, actualTl, actualMc);
+            logAndSync(WAL_PUT, LinkCodec.encode(link));
+        }
+        CREATE_LATENCY.recordSince(startNs);
+        return link;
+    }
+
+    /*
+    Метод массового создания ссылок (импорт): к каждой заявке применяются те же правила, что в createLink.
+    Записи всей пачки добавляются в журнал подряд, и поток ждёт один fsync на пачку, а не на каждую ссылку.
+    Затем пачка сразу передаётся в хранилище одним putAll, без fsync: до диска её доводит
+    ближайший сброс отложенной записи, а до него изменения защищает журнал. Поэтому очередь
+    отложенной записи не растёт с размером импорта.
+    Возвращает созданные ссылки в порядке заявок.
+    */
+    public List<Link> createLinks(List<LinkRequest> requests, long defaultTl, long defaultClicks) {
+        checkWritable();
+        List<Link> links = new ArrayList<>(requests.size());
+        List<byte[]> created = new ArrayList<>(requests.size());
+        long walPosition = 0;
+        for (LinkRequest request : requests) {
+            long startNs = System.nanoTime();
+            long actualTl = Math.min(request.getTlMinutes(), defaultTl);
+            long actualMc = Math.max(request.getMaxClicks(), defaultClicks);
+            Link link = findDuplicate(request.getOwnerUuid(), request.getOriginalUrl(), actualTl, actualMc);
+            if (link == null) {
+                link = newLink(request.getOwnerUuid(), request.getOriginalUrl(), actualTl, actualMc);
+                byte[] payload = LinkCodec.encode(link);
+                walPosition = logChange(WAL_PUT, payload);
+                created.add(payload);
+            }
+            links.add(link);
+            CREATE_LATENCY.recordSince(startNs);
+        }
+        if (wal != null) {
+            wal.awaitDurable(walPosition);
+        }
+        for (byte[] payload : created) {
+            publishChange(WAL_PUT, payload);
+        }
+        writePendingBatch();
+        return links;
+    }
+
+    // Создаёт ссылку в памяти и ставит её в очередь записи (без журнала)
+    private Link newLink(String ownerUuid, String originalUrl, long actualTl, long actualMc) {
         // Создаём объект Link
         Link link = new Link();
-        link.setShortCode(generateShortCode());
         link.setOwnerUuid(ownerUuid);
         link.setOriginalUrl(originalUrl);
         link.setCreateTimeMs(System.currentTimeMillis());
@@ -37,120 +310,986 @@ public class LinkService {
         link.setMaxClicks(actualMc);
         link.setCurrentClicks(0);
 
-        // Сохранить в файл
-        saveLinkToFile(link);
+        // Занимаем код атомарно в очереди записи: если код уже занят, берём следующий,
+        // поэтому чужая ссылка никогда не будет перезаписана
+        do {
+            link.setShortCode(shortCodeAllocator.nextCode());
+        } while (findLink(link.getShortCode()) != null || pending.putIfAbsent(link.getShortCode(), link) != null);
+
+        // Обновить кеш и вторичные индексы
+        cache.put(link);
+        addToOwnerIndex(link);
+        addToDedupIndex(link);
+        addToCodeFilter(link.getShortCode());
+        expiryScheduler.schedule(link.getShortCode(), link.getExpireTimeMs());
+        liveCount.incrementAndGet();
         return link;
     }
 
     /*
     Метод для редактирования лимита переходов.
+    Лимит меняется у живой копии ссылки: переданный объект мог быть вытеснен из кеша и перечитан,
+    и переходы, засчитанные на новой копии, иначе потерялись бы.
+    Возвращает изменённую ссылку или null, если её уже удалили или срок её жизни истёк.
     */
-    public void editLinkLimit(Link link, long newLimit, long defaultClicks) {
+    public Link editLinkLimit(Link link, long newLimit, long defaultClicks) {
+        checkWritable();
         long finalLimit = Math.max(newLimit, defaultClicks);
-        link.setMaxClicks(finalLimit);
-        saveLinkToFile(link);
+        String shortCode = link.getShortCode();
+        byte[] payload;
+        Lock lock = linkLock(shortCode);
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            Link current = lock != null ? currentLink(link) : findLink(shortCode);
+            if (current == null || current.isExpired(System.currentTimeMillis())) {
+                return null;
+            }
+            current.setMaxClicks(finalLimit);
+            current.markChanged();
+            // Ссылку могли удалить без блокировки кода: удаление не отменяем
+            if (pending.compute(shortCode, (code, pinned) -> pinned == DELETED ? DELETED : current) == DELETED) {
+                return null;
+            }
+            payload = LinkCodec.encode(current);
+            link = current;
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+        logAndSync(WAL_PUT, payload);
+        return link;
     }
 
     /*
-    Метод для удаления ссылки (фактически удаляем файл).
+    Метод для удаления ссылки: убираем из кеша, из хранилища она удалится при ближайшей записи на диск.
     */
     public void deleteLink(String shortCode) {
-        String path = linksFolderPath + File.separator + shortCode + ".txt";
-        File file = new File(path);
-        if (file.exists()) {
-            file.delete();
+        checkWritable();
+        if (removeLink(shortCode)) {
+            logAndSync(WAL_DELETE, encodeCode(shortCode));
         }
     }
 
     /*
-    Метод загрузки ссылки из файла.
+    Метод получения ссылки по коду.
+    Сначала ищем среди несохранённых изменений, затем в кеше и только при промахе — в хранилище.
+    Если все ссылки в памяти, к диску не обращаемся вовсе.
     */
     public Link loadLink(String shortCode) {
-        String path = linksFolderPath + File.separator + shortCode + ".txt";
-        File file = new File(path);
-        if (!file.exists()) {
+        long startNs = System.nanoTime();
+        Link link = findLink(shortCode);
+        (link != null ? LOOKUP_HITS : LOOKUP_MISSES).increment();
+        LOOKUP_LATENCY.recordSince(startNs);
+        return link;
+    }
+
+    /*
+    Метод регистрирует переход по ссылке: проверяет срок жизни и атомарно
+    проверяет лимит и увеличивает счётчик переходов.
+    Счётчик сохраняется на диск не на каждый переход, а пачкой при ближайшем сбросе
+    отложенной записи. Запись о переходе добавляется в журнал без ожидания fsync и уходит на диск
+    с ближайшей группой (WAL_GROUP_COMMIT_MS), поэтому переход не ждёт ввода-вывода; при сбое питания
+    могут потеряться переходы последнего окна группировки.
+    Засчитанный переход публикуется в историю переходов без ожидания её обработки.
+    */
+    public ClickStatus registerClick(Link link) {
+        return registerClicks(link, 1);
+    }
+
+    /*
+    Метод регистрирует сразу count переходов по ссылке (переходы, пересланные репликами).
+    Счётчик увеличивается не выше лимита, а в журнал пишется одна запись на всю пачку.
+    Если лимит закончился посреди пачки, возвращается OK, но в метрики и историю переходов
+    попадают только засчитанные переходы, остальные считаются отклонёнными по лимиту.
+    */
+    public ClickStatus registerClicks(Link link, int count) {
+        int[] counted = {0};
+        ClickStatus status = clickStatus(link, count, counted);
+        if (status == ClickStatus.OK) {
+            CLICKS[ClickStatus.OK.ordinal()].add(counted[0]);
+            CLICKS[ClickStatus.LIMIT_REACHED.ordinal()].add(count - counted[0]);
+        } else {
+            CLICKS[status.ordinal()].add(count);
+        }
+        if (status == ClickStatus.OK && clickAnalytics != null) {
+            long nowMs = System.currentTimeMillis();
+            for (int i = 0; i < counted[0]; i++) {
+                clickAnalytics.publish(link.getShortCode(), link.getOwnerUuid(), nowMs);
+            }
+        }
+        return status;
+    }
+
+    // Засчитывает до count переходов; сколько засчитано, записывается в counted[0]
+    private ClickStatus clickStatus(Link link, int count, int[] counted) {
+        if (link == null) {
+            return ClickStatus.NOT_FOUND;
+        }
+        if (link.isExpired(System.currentTimeMillis())) {
+            expire(link.getShortCode());
+            return ClickStatus.EXPIRED;
+        }
+        String shortCode = link.getShortCode();
+        long clicks;
+        Lock lock = linkLock(shortCode);
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            if (lock != null) {
+                // Вызывающий мог получить копию, которую с тех пор вытеснили и перечитали
+                link = currentLink(link);
+                if (link == null) {
+                    return ClickStatus.NOT_FOUND;
+                }
+            }
+            // Закрепляем ссылку в очереди записи: если другой поток уже закрепил её, считаем переход на закреплённой
+            Link pinned = pending.putIfAbsent(shortCode, link);
+            if (pinned == DELETED) {
+                return ClickStatus.NOT_FOUND;
+            }
+            if (pinned != null) {
+                link = pinned;
+            }
+            while (counted[0] < count && link.tryIncrementClicks()) {
+                counted[0]++;
+            }
+            if (counted[0] == 0) {
+                return ClickStatus.LIMIT_REACHED;
+            }
+            // Ссылку могли сбросить на диск между закреплением и переходом — ставим в очередь снова
+            pending.putIfAbsent(shortCode, link);
+            clicks = link.getCurrentClicks();
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+        ClickForwarder forwarder = clickForwarder;
+        if (forwarder != null) {
+            // Реплика: счётчик увеличен только в своей копии, ведущий узел узнает о переходах позже
+            forwarder.forwardClicks(shortCode, counted[0]);
+        } else {
+            logWithoutSync(WAL_CLICKS, encodeClicks(shortCode, clicks));
+        }
+        return ClickStatus.OK;
+    }
+
+    /*
+    Метод передаёт в consumer все живые ссылки (выгрузка). Ссылки читаются по одной
+    через индекс владельцев, список всех ссылок не строится.
+    */
+    public void forEachLink(Consumer<Link> consumer) {
+        for (Set<String> codes : codesByOwner.values()) {
+            for (String shortCode : codes) {
+                Link link = findLink(shortCode);
+                if (link != null) {
+                    consumer.accept(link);
+                }
+            }
+        }
+    }
+
+    /*
+    Метод возвращает все живые ссылки пользователя по его uuid через индекс владельцев,
+    не перебирая остальные ссылки.
+    */
+    public List<Link> findByOwner(String ownerUuid) {
+        List<Link> result = new ArrayList<>();
+        Set<String> codes = codesByOwner.get(ownerUuid);
+        if (codes == null) {
+            return result;
+        }
+        for (String shortCode : codes) {
+            Link link = findLink(shortCode);
+            if (link != null) {
+                result.add(link);
+            }
+        }
+        return result;
+    }
+
+    /*
+    Метод для сохранения ссылки: записывает её в журнал, обновляет кеш и ставит ссылку в очередь отложенной записи.
+    Несколько изменений одной ссылки между сбросами записываются в хранилище один раз.
+    */
+    public void saveLinkToFile(Link link) {
+        checkWritable();
+        storeLink(link);
+        logAndSync(WAL_PUT, LinkCodec.encode(link));
+    }
+
+    private void storeLink(Link link) {
+        Link previous;
+        Lock lock = linkLock(link.getShortCode());
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            previous = findLink(link.getShortCode());
+            link.markChanged();
+            pending.put(link.getShortCode(), link);
+            cache.put(link);
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+        if (previous != link) {
+            if (previous != null) {
+                removeFromOwnerIndex(previous);
+                removeFromDedupIndex(previous);
+            } else {
+                liveCount.incrementAndGet();
+            }
+            addToOwnerIndex(link);
+            addToDedupIndex(link);
+            addToCodeFilter(link.getShortCode());
+            expiryScheduler.schedule(link.getShortCode(), link.getExpireTimeMs());
+        }
+    }
+
+    /*
+    Метод сбрасывает на диск все накопленные изменения.
+    Ссылка убирается из очереди только после записи, поэтому до этого момента её не перечитают
+    из хранилища в старом виде. Если ссылка изменилась во время записи, она остаётся в очереди
+    до следующего сброса.
+    Сброс служит контрольной точкой журнала: всё, что попало в журнал до начала сброса,
+    после него есть в хранилище, поэтому старые сегменты журнала удаляются.
+    */
+    public synchronized void flush() {
+        long checkpoint = wal != null ? wal.beginCheckpoint() : 0;
+        if (!pending.isEmpty() || unsyncedWrites) {
+            long startNs = System.nanoTime();
+            writePending();
+            repository.flush();
+            unsyncedWrites = false;
+            FLUSH_LATENCY.recordSince(startNs);
+        }
+        if (wal != null) {
+            // Сегменты после последнего снимка нужны, чтобы проиграть их поверх снимка при запуске
+            wal.completeCheckpoint(Math.min(checkpoint, snapshotSegment));
+        }
+    }
+
+    private void writePending() {
+        List<Link> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+        long[] versions = new long[WRITE_BATCH_SIZE];
+        long[] clicks = new long[WRITE_BATCH_SIZE];
+        for (Map.Entry<String, Link> entry : pending.entrySet()) {
+            String shortCode = entry.getKey();
+            Link link = entry.getValue();
+            FLUSHED_CHANGES.increment();
+            if (link == DELETED) {
+                repository.delete(shortCode);
+                pending.remove(shortCode, DELETED);
+                continue;
+            }
+            long version = link.getVersion();
+            long clickCount = link.getCurrentClicks();
+            if (writeClickIncrement(link, version, clickCount)) {
+                unpin(link, version, clickCount);
+                continue;
+            }
+            versions[batch.size()] = version;
+            clicks[batch.size()] = clickCount;
+            batch.add(link);
+            if (batch.size() == WRITE_BATCH_SIZE) {
+                writeBatch(batch, versions, clicks);
+            }
+        }
+        writeBatch(batch, versions, clicks);
+    }
+
+    // Записывает очередь в хранилище без сброса на диск (массовое создание)
+    private synchronized void writePendingBatch() {
+        if (!pending.isEmpty()) {
+            writePending();
+            unsyncedWrites = true;
+        }
+    }
+
+    // Записывает пачку ссылок целиком и открепляет те, что не менялись во время записи
+    private void writeBatch(List<Link> batch, long[] versions, long[] clicks) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        repository.putAll(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            Link link = batch.get(i);
+            // Записанное число переходов известно точно, только если во время записи переходов не было
+            link.markStored(link.getCurrentClicks() == clicks[i] ? versions[i] : -1, clicks[i]);
+            unpin(link, versions[i], clicks[i]);
+        }
+        batch.clear();
+    }
+
+    /*
+    Метод убирает записанную ссылку из очереди отложенной записи.
+    Если с момента записи ссылка изменилась, она остаётся в очереди до следующего сброса.
+    При ограниченном кеше проверка идёт под блокировкой кода: переход на ссылку не может
+    вклиниться между проверкой и откреплением, поэтому открепленная ссылка в хранилище актуальна.
+    */
+    private void unpin(Link link, long version, long clicks) {
+        String shortCode = link.getShortCode();
+        Lock lock = linkLock(shortCode);
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            if (pending.remove(shortCode, link)
+                    && (link.getCurrentClicks() != clicks || link.getVersion() != version)) {
+                pending.putIfAbsent(shortCode, link);
+            }
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /*
+    Метод останавливает фоновую запись и гарантированно сбрасывает оставшиеся изменения.
+    Вызывается при завершении программы.
+    Снимок пишется до закрытия хранилища: ссылки, вытесненные из кеша, читаются из него.
+    Ошибка одного шага не отменяет остальные.
+    */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closeStep("планировщик удаления ссылок", expiryScheduler::close);
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeStep("запись изменений ссылок", this::flush);
+        closeStep("снимок ссылок", () -> writeSnapshot(true));
+        closeStep("хранилище ссылок", repository::close);
+        if (wal != null) {
+            closeStep("журнал упреждающей записи", () -> {
+                wal.completeCheckpoint(snapshotSegment);
+                wal.close();
+            });
+        }
+        if (clickAnalytics != null) {
+            closeStep("история переходов", clickAnalytics::close);
+        }
+        try {
+            codeFilter.writeTo(codeFilterFile);
+        } catch (IOException e) {
+            System.out.println("Ошибка сохранения фильтра кодов ссылок: " + e.getMessage());
+        }
+    }
+
+    // Шаг завершения: ошибка печатается, следующие шаги выполняются
+    private static void closeStep(String name, Runnable step) {
+        try {
+            step.run();
+        } catch (RuntimeException e) {
+            System.out.println("Ошибка завершения (" + name + "): " + e);
+        }
+    }
+
+    /*
+    Если с последней записи ссылки в хранилище менялся только счётчик переходов,
+    метод записывает прирост через incrementClicks (в хранилище слотов — одно атомарное сложение
+    на месте, в журнальном — короткая запись) вместо всей ссылки.
+    Возвращает false, если ссылку нужно записать целиком.
+    */
+    private boolean writeClickIncrement(Link link, long version, long clicks) {
+        long storedClicks = link.getStoredClicks();
+        if (link.getStoredVersion() != version || clicks < storedClicks) {
+            return false;
+        }
+        if (clicks > storedClicks && repository.incrementClicks(link.getShortCode(), clicks - storedClicks) < 0) {
+            return false;
+        }
+        link.markStored(version, clicks);
+        FLUSHED_CLICK_INCREMENTS.increment();
+        return true;
+    }
+
+    /*
+    Метод немедленно удаляет ссылки, срок жизни которых истёк.
+    Обычно удаление выполняет фоновый поток планировщика, этот метод запускает проход вне очереди
+    и печатает его итог. Возвращает число удалённых ссылок.
+    */
+    public int cleanupExpiredLinks() {
+        int removed = expiryScheduler.sweep();
+        if (removed > 0) {
+            System.out.println("Удалено просроченных ссылок: " + removed
+                    + " (за " + expiryScheduler.getLastSweepDurationMs() + " мс)");
+        }
+        return removed;
+    }
+
+    // Доступ к истории переходов (null, если она выключена)
+    public ClickAnalytics getClickAnalytics() {
+        return clickAnalytics;
+    }
+
+    // Доступ к кешу (для статистики попаданий и вытеснений)
+    public LinkCache getCache() {
+        return cache;
+    }
+
+    // Доступ к планировщику (для статистики проходов)
+    public ExpiryScheduler getExpiryScheduler() {
+        return expiryScheduler;
+    }
+
+    /*
+    Методы репликации.
+    На ведущем узле получатели изменений получают каждое изменение ссылок (создание, переход,
+    изменение лимита, удаление, истечение срока) в формате записей журнала после того,
+    как оно оказалось на диске. Записи идемпотентны, поэтому реплика может получить
+    изменение дважды (в состоянии и в потоке изменений) без вреда.
+    */
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    // Передаёт получателю все живые ссылки как записи создания (начальное состояние реплики)
+    public void replayState(ChangeListener listener) {
+        forEachLink(link -> listener.onChange(WAL_PUT, LinkCodec.encode(link)));
+    }
+
+    // Применяет на реплике изменение, полученное от ведущего узла
+    public void applyReplicatedChange(byte type, byte[] payload) {
+        applyWalRecord(type, payload);
+    }
+
+    /*
+    Метод удаляет на реплике ссылки, которых нет в переданном состоянии ведущего узла
+    (удалённые, пока реплика была отключена). Возвращает число удалённых ссылок.
+    */
+    public int retainLinks(Set<String> shortCodes) {
+        List<String> stale = new ArrayList<>();
+        forEachLink(link -> {
+            if (!shortCodes.contains(link.getShortCode())) {
+                stale.add(link.getShortCode());
+            }
+        });
+        int removed = 0;
+        for (String shortCode : stale) {
+            if (removeLink(shortCode)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /*
+    Метод переводит сервис в режим реплики: переходы считаются в своей копии
+    и пересылаются ведущему узлу через forwarder, а создание, изменение и удаление ссылок запрещены.
+    */
+    public void setClickForwarder(ClickForwarder forwarder) {
+        this.clickForwarder = forwarder;
+    }
+
+    private void checkWritable() {
+        if (clickForwarder != null) {
+            throw new IllegalStateException("Узел-реплика только для чтения: ссылки изменяются на ведущем узле");
+        }
+    }
+
+    /*
+    Метод вызывается планировщиком, когда наступил срок ссылки.
+    Удаляем ссылку, только если она ещё существует и действительно просрочена.
+    */
+    private boolean expireIfDue(String shortCode) {
+        Link link = findLink(shortCode);
+        if (link == null || !link.isExpired(System.currentTimeMillis())) {
+            return false;
+        }
+        expire(shortCode);
+        return true;
+    }
+
+    /*
+    Удаление просроченной ссылки. Его не нужно ждать на диске: после сбоя ссылка
+    всё равно будет снова признана просроченной, поэтому запись в журнал без fsync.
+    */
+    private void expire(String shortCode) {
+        if (removeLink(shortCode)) {
+            byte[] payload = encodeCode(shortCode);
+            logChange(WAL_DELETE, payload);
+            publishChange(WAL_DELETE, payload);
+        }
+    }
+
+    // Убирает ссылку из памяти и ставит удаление в очередь записи; false — ссылки уже нет
+    private boolean removeLink(String shortCode) {
+        Link removed = findLink(shortCode);
+        if (removed == null || pending.put(shortCode, DELETED) == DELETED) {
+            return false;
+        }
+        cache.invalidate(shortCode);
+        removeFromOwnerIndex(removed);
+        removeFromDedupIndex(removed);
+        liveCount.decrementAndGet();
+        deletedSinceFilterBuild.incrementAndGet();
+        return true;
+    }
+
+    /*
+    Методы журнала упреждающей записи.
+    Поток ждёт, пока его запись окажется на диске; записи параллельных потоков
+    сбрасываются одной группой, поэтому fsync не выполняется на каждый переход.
+    */
+    private void logAndSync(byte type, byte[] payload) {
+        long position = logChange(type, payload);
+        if (wal != null) {
+            wal.awaitDurable(position);
+        }
+        publishChange(type, payload);
+    }
+
+    /*
+    Метод добавляет изменение в журнал и передаёт получателям, не дожидаясь fsync:
+    запись попадёт на диск с ближайшей группой. Если журнал уже в состоянии сбоя,
+    изменение не подтверждается, как и в logAndSync.
+    */
+    private void logWithoutSync(byte type, byte[] payload) {
+        if (wal != null && wal.isFailed()) {
+            throw new UncheckedIOException("Изменение не записано в журнал упреждающей записи",
+                    new IOException("журнал в состоянии сбоя"));
+        }
+        logChange(type, payload);
+        publishChange(type, payload);
+    }
+
+    // Добавляет изменение в журнал без ожидания fsync, возвращает позицию записи
+    private long logChange(byte type, byte[] payload) {
+        changesSinceSnapshot.incrementAndGet();
+        return wal != null ? wal.append(type, payload) : 0;
+    }
+
+    // Передаёт изменение получателям (после того как оно оказалось в журнале)
+    private void publishChange(byte type, byte[] payload) {
+        for (ChangeListener listener : changeListeners) {
+            listener.onChange(type, payload);
+        }
+    }
+
+    /*
+    Метод применяет запись журнала при старте. Записи идемпотентны: счётчик переходов
+    только растёт, поэтому берётся максимум из сохранённого и записанного в журнал значений.
+    */
+    private void applyWalRecord(byte type, byte[] payload) {
+        try {
+            ByteBuffer data = ByteBuffer.wrap(payload);
+            switch (type) {
+                case WAL_PUT: {
+                    Link logged = LinkCodec.decode(data);
+                    Link existing = findLink(logged.getShortCode());
+                    if (existing == null) {
+                        storeLink(logged);
+                    } else {
+                        existing.setTlMinutes(logged.getTlMinutes());
+                        existing.setMaxClicks(logged.getMaxClicks());
+                        existing.setCurrentClicks(Math.max(existing.getCurrentClicks(), logged.getCurrentClicks()));
+                        existing.markChanged();
+                        pending.put(existing.getShortCode(), existing);
+                    }
+                    break;
+                }
+                case WAL_CLICKS: {
+                    String shortCode = readCode(data);
+                    long clicks = data.getLong();
+                    Link existing = findLink(shortCode);
+                    if (existing != null && clicks > existing.getCurrentClicks()) {
+                        existing.setCurrentClicks(clicks);
+                        pending.put(shortCode, existing);
+                    }
+                    break;
+                }
+                case WAL_DELETE:
+                    removeLink(readCode(data));
+                    break;
+                default:
+                    System.out.println("Неизвестная запись журнала ссылок: " + type);
+            }
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            System.out.println("Пропущена повреждённая запись журнала ссылок: " + e.getMessage());
+        }
+    }
+
+    private static byte[] encodeCode(String shortCode) {
+        byte[] code = shortCode.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Short.BYTES + code.length).putShort((short) code.length).put(code).array();
+    }
+
+    private static byte[] encodeClicks(String shortCode, long clicks) {
+        byte[] code = shortCode.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Short.BYTES + code.length + Long.BYTES)
+                .putShort((short) code.length).put(code).putLong(clicks).array();
+    }
+
+    private static String readCode(ByteBuffer data) {
+        byte[] code = new byte[data.getShort() & 0xFFFF];
+        data.get(code);
+        return new String(code, StandardCharsets.UTF_8);
+    }
+
+    /*
+    Метод поиска ссылки: очередь записи, затем фильтр кодов, кеш и хранилище.
+    Ответ хранилища (в том числе "кода нет") запоминается в кеше.
+    */
+    private Link findLink(String shortCode) {
+        Link link = pending.get(shortCode);
+        if (link != null) {
+            return link == DELETED ? null : link;
+        }
+        if (!codeFilter.mightContain(shortCode)) {
+            CODE_FILTER_REJECTS.increment();
+            return null;
+        }
+        long nowMs = System.currentTimeMillis();
+        link = cache.get(shortCode, nowMs);
+        if (link != null) {
+            return link == LinkCache.ABSENT ? null : link;
+        }
+        if (!cache.isBounded()) {
+            CODE_FILTER_FALSE_POSITIVES.increment();
             return null;
         }
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            Link link = new Link();
-            link.setShortCode(br.readLine());       // shortURL
-            link.setOwnerUuid(br.readLine());       // ownerUuid
-            link.setOriginalUrl(br.readLine());     // originalUrl
-            link.setCreateTimeMs(Long.parseLong(br.readLine()));
-            link.setTlMinutes(Long.parseLong(br.readLine()));
-            link.setMaxClicks(Long.parseLong(br.readLine()));
-            link.setCurrentClicks(Long.parseLong(br.readLine()));
+        Lock lock = linkLock(shortCode);
+        lock.lock();
+        try {
+            // Пока ждали блокировку, ссылку могли закрепить или прочитать в кеш другие потоки
+            link = pending.get(shortCode);
+            if (link != null) {
+                return link == DELETED ? null : link;
+            }
+            link = cache.peek(shortCode);
+            if (link != null) {
+                return link;
+            }
+            link = repository.get(shortCode);
+            if (link == null) {
+                CODE_FILTER_FALSE_POSITIVES.increment();
+                cache.putAbsent(shortCode);
+                return null;
+            }
+            link.markStored(link.getVersion(), link.getCurrentClicks());
+            if (!link.isExpired(nowMs)) {
+                cache.put(link);
+                // Ссылку могли удалить, пока мы читали её из хранилища
+                if (pending.get(shortCode) == DELETED) {
+                    cache.invalidate(shortCode);
+                    return null;
+                }
+            }
             return link;
-        } catch (IOException e) {
-            System.out.println("Ошибка чтения ссылки: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+    Метод получения текущего объекта ссылки (вызывается под блокировкой её кода).
+    Закреплённая или лежащая в кеше ссылка — единственная живая копия; иначе все переходы
+    уже записаны в хранилище, и ссылка перечитывается оттуда (null — её удалили).
+    */
+    private Link currentLink(Link link) {
+        String shortCode = link.getShortCode();
+        Link current = pending.get(shortCode);
+        if (current != null) {
+            return current == DELETED ? null : current;
+        }
+        current = cache.peek(shortCode);
+        if (current != null) {
+            return current;
+        }
+        current = repository.get(shortCode);
+        if (current == null) {
             return null;
         }
+        current.markStored(current.getVersion(), current.getCurrentClicks());
+        if (!current.isExpired(System.currentTimeMillis())) {
+            cache.put(current);
+        }
+        return current;
+    }
+
+    // Блокировка кода ссылки (null — кеш не ограничен и ссылки не вытесняются)
+    private Lock linkLock(String shortCode) {
+        return linkLocks != null ? linkLocks[(shortCode.hashCode() & Integer.MAX_VALUE) % linkLocks.length] : null;
+    }
+
+    private static Lock[] newLinkLocks() {
+        Lock[] locks = new Lock[LINK_LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
     }
 
     /*
-    Метод для сохранения ссылки в файл.
+    Метод загружает ссылки из хранилища при старте: все попадают в индексы владельцев
+    и планировщик удаления, а в кеше остаются те, что помещаются в бюджет памяти.
     */
-    public void saveLinkToFile(Link link) {
-        String path = linksFolderPath + File.separator + link.getShortCode() + ".txt";
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(path, false))) {
-            // Запишем поля по строкам
-            bw.write(link.getShortCode());
-            bw.newLine();
-            bw.write(link.getOwnerUuid());
-            bw.newLine();
-            bw.write(link.getOriginalUrl());
-            bw.newLine();
-            bw.write(String.valueOf(link.getCreateTimeMs()));
-            bw.newLine();
-            bw.write(String.valueOf(link.getTlMinutes()));
-            bw.newLine();
-            bw.write(String.valueOf(link.getMaxClicks()));
-            bw.newLine();
-            bw.write(String.valueOf(link.getCurrentClicks()));
+    private void loadAllLinks() {
+        repository.forEach(link -> {
+            link.markStored(link.getVersion(), link.getCurrentClicks());
+            indexLoadedLink(link);
+        });
+    }
+
+    private void indexLoadedLink(Link link) {
+        cache.put(link);
+        addToOwnerIndex(link);
+        addToDedupIndex(link);
+        if (!codeFilterRestored) {
+            codeFilter.put(link.getShortCode());
+        }
+        expiryScheduler.schedule(link.getShortCode(), link.getExpireTimeMs());
+        liveCount.incrementAndGet();
+    }
+
+    /*
+    Методы снимка ссылок.
+    Снимок — один файл со всеми живыми ссылками в формате LinkCodec и номером сегмента журнала,
+    начатого перед снимком. При запуске ссылки читаются из снимка (mmap), а изменения после него
+    проигрываются из журнала, поэтому время запуска не зависит от числа файлов в хранилище.
+    Снимок снимается без остановки работы: ссылки, изменённые во время записи, могут попасть
+    в снимок в любом виде, журнал с этого сегмента всё равно приведёт их к последнему состоянию.
+    Без журнала снимок пишется только при завершении программы (clean) и удаляется при запуске.
+    */
+    private boolean loadSnapshot() {
+        SnapshotFile.Reader snapshot = SnapshotFile.open(snapshotFile, SNAPSHOT_MAGIC);
+        if (wal == null) {
+            SnapshotFile.delete(snapshotFile);
+        }
+        if (snapshot == null) {
+            return false;
+        }
+        long segment;
+        List<Link> links = new ArrayList<>();
+        try (snapshot) {
+            ByteBuffer header = snapshot.buffer();
+            segment = header.getLong();
+            boolean clean = header.get() != 0;
+            boolean replayable = wal != null
+                    && segment >= wal.getFirstSegmentId() && segment < wal.getActiveSegmentId();
+            if (!replayable && !(clean && wal == null)) {
+                System.out.println("Снимок ссылок не используется: в журнале нет изменений после него");
+                return false;
+            }
+            while (snapshot.hasRemaining()) {
+                links.add(LinkCodec.decode(snapshot.buffer()));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Снимок ссылок не используется: " + e.getMessage());
+            return false;
+        }
+        links.forEach(this::indexLoadedLink);
+        if (wal != null) {
+            snapshotSegment = segment;
+        }
+        return true;
+    }
+
+    private void writeSnapshotIfChanged() {
+        if (changesSinceSnapshot.get() > 0) {
+            writeSnapshot(false);
+        }
+    }
+
+    private synchronized void writeSnapshot(boolean clean) {
+        long startNs = System.nanoTime();
+        long changes = changesSinceSnapshot.get();
+        long segment = wal != null ? wal.beginCheckpoint() : 0;
+        try {
+            SnapshotFile.write(snapshotFile, SNAPSHOT_MAGIC, out -> {
+                out.writeLong(segment);
+                out.writeBoolean(clean);
+                for (Set<String> codes : codesByOwner.values()) {
+                    for (String shortCode : codes) {
+                        Link link = findLink(shortCode);
+                        if (link != null) {
+                            out.write(LinkCodec.encode(link));
+                        }
+                    }
+                }
+            });
+            if (wal != null) {
+                snapshotSegment = segment;
+            }
+            changesSinceSnapshot.addAndGet(-changes);
         } catch (IOException e) {
-            System.out.println("Ошибка записи ссылки: " + e.getMessage());
+            System.out.println("Ошибка записи снимка ссылок: " + e.getMessage());
         }
+        SNAPSHOT_LATENCY.recordSince(startNs);
     }
 
     /*
-    Метод для удаления ссылки, если срок жизни истёк — удаляем.
+    Методы поддержки фильтра кодов.
+    Удалённые коды остаются в фильтре (он только чаще отвечает "возможно, есть"),
+    поэтому периодически фильтр строится заново по индексу владельцев, где есть коды всех живых ссылок.
     */
-    public void cleanupExpiredLinks() {
-        File folder = new File(linksFolderPath);
-        File[] files = folder.listFiles();
-        if (files == null) return;
+    private BloomFilter newCodeFilter(long liveLinks) {
+        return new BloomFilter(Math.max(codeFilterExpectedLinks, liveLinks * 2), codeFilterFalsePositiveRate);
+    }
 
-        long now = System.currentTimeMillis();
-        for (File f : files) {
-            if (!f.isFile() || !f.getName().endsWith(".txt")) {
-                continue;
+    private void addToCodeFilter(String shortCode) {
+        codeFilterLock.readLock().lock();
+        try {
+            codeFilter.put(shortCode);
+            BloomFilter rebuilding = rebuildingFilter;
+            if (rebuilding != null) {
+                rebuilding.put(shortCode);
             }
-            // Попробуем загрузить ссылку
-            Link link = loadLink(f.getName().replace(".txt", ""));
-            if (link == null) {
-                continue;
+        } finally {
+            codeFilterLock.readLock().unlock();
+        }
+    }
+
+    private void rebuildCodeFilterIfNeeded() {
+        if (deletedSinceFilterBuild.get() > 0 || codeFilter.getInsertions() > codeFilter.getExpectedInsertions()) {
+            rebuildCodeFilter();
+        }
+    }
+
+    private void rebuildCodeFilter() {
+        BloomFilter rebuilt = newCodeFilter(liveCount.get());
+        // С этого момента новые коды попадают и в строящийся фильтр
+        codeFilterLock.writeLock().lock();
+        try {
+            rebuildingFilter = rebuilt;
+            deletedSinceFilterBuild.set(0);
+        } finally {
+            codeFilterLock.writeLock().unlock();
+        }
+        for (Set<String> codes : codesByOwner.values()) {
+            for (String shortCode : codes) {
+                rebuilt.put(shortCode);
             }
-            // Проверяем время
-            long ageMs = now - link.getCreateTimeMs();
-            long tlMs = link.getTlMinutes() * 60_000;
-            // если фактическое время меньше лимита, то удаляем ссылку
-            if (ageMs >= tlMs) {
-                deleteLink(link.getShortCode());
+        }
+        codeFilterLock.writeLock().lock();
+        try {
+            codeFilter = rebuilt;
+            rebuildingFilter = null;
+        } finally {
+            codeFilterLock.writeLock().unlock();
+        }
+    }
+
+    private void deleteCodeFilterFile() {
+        try {
+            Files.deleteIfExists(codeFilterFile);
+        } catch (IOException e) {
+            System.out.println("Ошибка удаления файла фильтра кодов ссылок: " + e.getMessage());
+        }
+    }
+
+    /*
+    Методы поддержки индекса владельцев.
+    Изменение набора кодов одного владельца выполняется атомарно через compute,
+    пустые наборы удаляются из индекса.
+    */
+    private void addToOwnerIndex(Link link) {
+        codesByOwner.compute(link.getOwnerUuid(), (owner, codes) -> {
+            if (codes == null) {
+                codes = ConcurrentHashMap.newKeySet();
             }
+            codes.add(link.getShortCode());
+            return codes;
+        });
+    }
+
+    private void removeFromOwnerIndex(Link link) {
+        codesByOwner.computeIfPresent(link.getOwnerUuid(), (owner, codes) -> {
+            codes.remove(link.getShortCode());
+            return codes.isEmpty() ? null : codes;
+        });
+    }
+
+    /*
+    Методы поддержки индекса повторных ссылок. Индекс обновляется вместе с индексом владельцев:
+    при создании, загрузке, удалении и истечении срока ссылки.
+    */
+    private void addToDedupIndex(Link link) {
+        if (dedupIndex != null) {
+            dedupIndex.put(dedupDigest(link), link.getShortCode());
         }
     }
 
+    private void removeFromDedupIndex(Link link) {
+        if (dedupIndex != null) {
+            dedupIndex.remove(dedupDigest(link), link.getShortCode());
+        }
+    }
+
+    private static long dedupDigest(Link link) {
+        return DedupIndex.digest(link.getOwnerUuid(), DedupIndex.normalizeUrl(link.getOriginalUrl()));
+    }
+
     /*
-    Метод для генерации кода ссылки (8 символов: A-Z, a-z, 0-9).
+    Метод ищет действующую ссылку владельца на тот же URL, которая покрывает запрос: оставшийся срок
+    не короче запрошенного (с допуском DEDUP_TTL_TOLERANCE_MS) и оставшихся переходов не меньше запрошенного лимита.
+    Ссылка по отпечатку сверяется с владельцем и URL, поэтому совпадение отпечатков не даёт чужую ссылку.
+    Если ссылка запрос не покрывает, вместо неё создаётся новая.
     */
-    private String generateShortCode() {
-        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-        Random random = new Random();
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < 8; i++) {
-            int idx = random.nextInt(chars.length());
-            sb.append(chars.charAt(idx));
+    private Link findDuplicate(String ownerUuid, String originalUrl, long actualTl, long actualMc) {
+        if (dedupIndex == null) {
+            return null;
         }
-        return sb.toString();
+        String normalizedUrl = DedupIndex.normalizeUrl(originalUrl);
+        String shortCode = dedupIndex.get(DedupIndex.digest(ownerUuid, normalizedUrl));
+        Link link = shortCode != null ? findLink(shortCode) : null;
+        long now = System.currentTimeMillis();
+        if (link == null || link.isExpired(now)
+                || link.getExpireTimeMs() - now < actualTl * 60_000 - DEDUP_TTL_TOLERANCE_MS
+                || link.getMaxClicks() - link.getCurrentClicks() < actualMc
+                || !link.getOwnerUuid().equals(ownerUuid)
+                || !DedupIndex.normalizeUrl(link.getOriginalUrl()).equals(normalizedUrl)) {
+            DEDUP_MISSES.increment();
+            return null;
+        }
+        DEDUP_HITS.increment();
+        return link;
+    }
+
+    /*
+    Метод выбирает способ выдачи кодов по параметру SHORT_CODE_ALLOCATOR:
+    sequential — счётчик с арендой блоков, random — случайные коды с проверкой по индексу.
+    В режиме кластера выдаются только коды из партиций этого узла.
+    */
+    private ShortCodeAllocator createShortCodeAllocator(ConfigService configService) {
+        ShortCodeAllocator allocator;
+        if ("sequential".equals(configService.getShortCodeAllocator())) {
+            allocator = new SequentialCodeAllocator(configService.getShortCodeLeaseFile(),
+                    configService.getShortCodeBlockSize());
+        } else {
+            allocator = new RandomCodeAllocator(shortCode -> findLink(shortCode) != null);
+        }
+        if (!configService.isClusterEnabled()) {
+            return allocator;
+        }
+        HashRing ring = Cluster.createRing(configService);
+        return new PartitionedCodeAllocator(allocator, ring, Cluster.localNode(ring, configService));
+    }
+
+    // Получатель изменений ссылок: тип и данные записи журнала
+    public interface ChangeListener {
+        void onChange(byte type, byte[] payload);
+    }
+
+    // Пересылка засчитанных переходов по ссылке ведущему узлу
+    public interface ClickForwarder {
+        void forwardClicks(String shortCode, int count);
     }
 }
@@ -0,0 +1,683 @@
+package program;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/*
+Журнальное (log-structured) хранилище ссылок.
+Все изменения дописываются в конец файлов-сегментов: создание ссылки — полная запись,
+изменение счётчика переходов — запись с приращением, удаление — запись-надгробие.
+В памяти хранится индекс смещений: код ссылки -> положение её последней полной записи.
+Старые сегменты периодически сжимаются в фоне: в них остаются только живые ссылки.
+При старте состояние восстанавливается последовательным чтением сегментов.
+*/
+public class LogLinkRepository implements LinkRepository {
+    private static final Metrics.Counter BYTES_WRITTEN =
+            Metrics.counter("link_storage_bytes_written_total{store=\"log\"}", "Байты, записанные хранилищем ссылок");
+
+    // Типы записей в сегменте
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_CLICKS = 2;
+    private static final byte RECORD_DELETE = 3;
+    // Первая запись сжатого сегмента: все более ранние сегменты им заменены
+    private static final byte RECORD_COMPACTED = 4;
+    // Запись: тип (1 байт) + длина данных (4 байта) + данные + CRC32 (4 байта)
+    private static final int HEADER_BYTES = 5;
+    private static final int CRC_BYTES = 4;
+    private static final int MAX_PAYLOAD_BYTES = 16 * 1024 * 1024;
+    // Буфер, в котором putAll собирает записи пачки перед записью в сегмент
+    private static final int BATCH_BUFFER_BYTES = 256 * 1024;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String COMPACT_SUFFIX = ".compact";
+
+    private final Path folder;
+    private final long segmentBytes;
+    // Индекс смещений: код ссылки -> положение последней полной записи и текущие значения счётчиков
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    // Открытые каналы сегментов (ключ — номер сегмента), последний из них — активный
+    private final NavigableMap<Long, FileChannel> segments = new ConcurrentSkipListMap<>();
+    // Запись и замена сегментов берут блокировку на запись, чтение ссылок — на чтение
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService compactor;
+
+    private long activeSegmentId;
+    // Размер активного сегмента вместе с записями, собранными в batchBuffer
+    private long activeSize;
+    // Записи пачки putAll, ещё не записанные в активный сегмент (null — записи пишутся по одной)
+    private ByteBuffer batchBuffer;
+
+    /*
+    Объявляем конструктор класса: открываем папку журнала, восстанавливаем индекс
+    по существующим сегментам и запускаем фоновое сжатие.
+    */
+    public LogLinkRepository(String folderPath, long segmentBytes, long compactionIntervalMs) {
+        this.folder = Paths.get(folderPath);
+        this.segmentBytes = segmentBytes;
+        try {
+            Files.createDirectories(folder);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка открытия журнала ссылок " + folderPath, e);
+        }
+
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "link-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compact, compactionIntervalMs, compactionIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+    Метод последовательно читает все сегменты, в порядке возрастания номера,
+    и отдаёт только актуальные полные записи ссылок.
+    */
+    @Override
+    public void forEach(Consumer<Link> consumer) {
+        lock.readLock().lock();
+        try {
+            for (long segmentId : segments.keySet()) {
+                scanSegment(segmentPath(segmentId), (type, payload, offset) -> {
+                    if (type != RECORD_PUT) {
+                        return;
+                    }
+                    Link link = decodeLink(payload);
+                    Entry entry = index.get(link.getShortCode());
+                    if (entry != null && entry.segmentId == segmentId && entry.offset == offset) {
+                        link.setCurrentClicks(entry.clicks);
+                        consumer.accept(link);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка чтения журнала ссылок: " + e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+    Метод загрузки ссылки: читаем полную запись по смещению из индекса,
+    текущее число переходов берём из индекса.
+    */
+    @Override
+    public Link get(String shortCode) {
+        lock.readLock().lock();
+        try {
+            Entry entry = index.get(shortCode);
+            if (entry == null) {
+                return null;
+            }
+            Link link = decodeLink(readPayload(segments.get(entry.segmentId), entry.offset));
+            link.setCurrentClicks(entry.clicks);
+            return link;
+        } catch (IOException e) {
+            System.out.println("Ошибка чтения ссылки " + shortCode + ": " + e.getMessage());
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+    Метод сохранения ссылки.
+    Если изменился только счётчик переходов, дописываем короткую запись с приращением,
+    иначе — полную запись ссылки.
+    */
+    @Override
+    public void put(Link link) {
+        String shortCode = link.getShortCode();
+        lock.writeLock().lock();
+        try {
+            Entry entry = index.get(shortCode);
+            if (entry != null
+                    && entry.createTimeMs == link.getCreateTimeMs()
+                    && entry.maxClicks == link.getMaxClicks()) {
+                // Счётчик могут увеличивать во время записи: читаем его один раз
+                long clicks = link.getCurrentClicks();
+                long delta = clicks - entry.clicks;
+                if (delta != 0) {
+                    append(RECORD_CLICKS, encodeClicks(shortCode, delta));
+                    entry.clicks = clicks;
+                }
+                return;
+            }
+            // В индекс кладём счётчик из самой записи, а не текущий: он мог вырасти после кодирования
+            byte[] payload = encodeLink(link);
+            long offset = append(RECORD_PUT, payload);
+            index.put(shortCode, new Entry(activeSegmentId, offset,
+                    link.getCreateTimeMs(), link.getMaxClicks(), decodeLink(payload).getCurrentClicks()));
+        } catch (IOException e) {
+            System.out.println("Ошибка записи ссылки: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+    Метод сохраняет пачку ссылок под одной блокировкой: записи собираются в буфер
+    и попадают в сегмент одной записью в файл, а не отдельной записью на каждую ссылку.
+    */
+    @Override
+    public void putAll(Collection<Link> links) {
+        lock.writeLock().lock();
+        try {
+            batchBuffer = ByteBuffer.allocate(BATCH_BUFFER_BYTES);
+            for (Link link : links) {
+                put(link);
+            }
+            writeBatchBuffer();
+        } catch (IOException e) {
+            System.out.println("Ошибка записи пачки ссылок: " + e.getMessage());
+        } finally {
+            batchBuffer = null;
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+    Метод увеличения счётчика переходов: дописываем короткую запись с приращением.
+    */
+    @Override
+    public long incrementClicks(String shortCode, long delta) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = index.get(shortCode);
+            if (entry == null) {
+                return -1;
+            }
+            append(RECORD_CLICKS, encodeClicks(shortCode, delta));
+            entry.clicks += delta;
+            return entry.clicks;
+        } catch (IOException e) {
+            System.out.println("Ошибка записи переходов ссылки: " + e.getMessage());
+            return -1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+    Метод удаления ссылки: дописываем запись-надгробие.
+    */
+    @Override
+    public void delete(String shortCode) {
+        lock.writeLock().lock();
+        try {
+            if (index.remove(shortCode) != null) {
+                append(RECORD_DELETE, encodeCode(shortCode));
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка удаления ссылки: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            segments.get(activeSegmentId).force(false);
+        } catch (IOException e) {
+            System.out.println("Ошибка сброса журнала ссылок: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            segments.get(activeSegmentId).force(true);
+            for (FileChannel channel : segments.values()) {
+                channel.close();
+            }
+            segments.clear();
+        } catch (IOException e) {
+            System.out.println("Ошибка закрытия журнала ссылок: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Количество живых ссылок в журнале
+    public int size() {
+        return index.size();
+    }
+
+    /*
+    Метод импорта ссылок из другого хранилища (например, из папки links с файлами .txt).
+    Возвращает число импортированных ссылок.
+    */
+    public int importFrom(LinkRepository source) {
+        int[] count = {0};
+        source.forEach(link -> {
+            put(link);
+            count[0]++;
+        });
+        flush();
+        return count[0];
+    }
+
+    /*
+    Метод восстановления состояния при старте.
+    Читаем сегменты по порядку; если встречаем сжатый сегмент, всё, что было до него, устарело.
+    Недописанный хвост последнего сегмента (после сбоя) обрезается.
+    */
+    private void recover() throws IOException {
+        // Незавершённые результаты сжатия остаются только после сбоя — удаляем их
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                if (path.getFileName().toString().endsWith(COMPACT_SUFFIX)) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+
+        List<Long> ids = listSegmentIds();
+        long[] compactedId = {-1};
+        for (long segmentId : ids) {
+            Path path = segmentPath(segmentId);
+            long validEnd = scanSegment(path, (type, payload, offset) -> {
+                switch (type) {
+                    case RECORD_PUT: {
+                        Link link = decodeLink(payload);
+                        index.put(link.getShortCode(), new Entry(segmentId, offset,
+                                link.getCreateTimeMs(), link.getMaxClicks(), link.getCurrentClicks()));
+                        break;
+                    }
+                    case RECORD_CLICKS: {
+                        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+                        Entry entry = index.get(readString(in));
+                        if (entry != null) {
+                            entry.clicks += in.readLong();
+                        }
+                        break;
+                    }
+                    case RECORD_DELETE:
+                        index.remove(readString(new DataInputStream(new ByteArrayInputStream(payload))));
+                        break;
+                    case RECORD_COMPACTED:
+                        index.clear();
+                        compactedId[0] = segmentId;
+                        break;
+                    default:
+                        break;
+                }
+            });
+
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() > validEnd) {
+                System.out.println("Журнал ссылок: повреждённый хвост сегмента " + path.getFileName()
+                        + " обрезан (" + (channel.size() - validEnd) + " байт)");
+                channel.truncate(validEnd);
+            }
+            segments.put(segmentId, channel);
+        }
+
+        // Сегменты старше сжатого могли остаться, если сбой произошёл во время сжатия
+        for (long segmentId : ids) {
+            if (segmentId < compactedId[0]) {
+                segments.remove(segmentId).close();
+                Files.deleteIfExists(segmentPath(segmentId));
+            }
+        }
+
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            activeSegmentId = segments.lastKey();
+            activeSize = segments.get(activeSegmentId).size();
+        }
+    }
+
+    /*
+    Метод фонового сжатия.
+    Все закрытые (не активные) сегменты переписываются в один: восстанавливаем по ним состояние
+    на момент конца последнего из них и записываем только живые ссылки.
+    Новый сегмент получает номер последнего сжатого, поэтому порядок чтения при старте сохраняется,
+    а запись в активный сегмент во время сжатия не останавливается.
+    */
+    private void compact() {
+        List<Long> sealed;
+        lock.readLock().lock();
+        try {
+            sealed = new ArrayList<>(segments.headMap(activeSegmentId, false).keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (sealed.size() < 2) {
+            return;
+        }
+        long targetId = sealed.get(sealed.size() - 1);
+        Path target = segmentPath(targetId);
+        Path tmp = folder.resolve(target.getFileName() + COMPACT_SUFFIX);
+
+        try {
+            // Состояние на конец последнего закрытого сегмента
+            Map<String, Link> state = new LinkedHashMap<>();
+            for (long segmentId : sealed) {
+                scanSegment(segmentPath(segmentId), (type, payload, offset) -> {
+                    DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+                    switch (type) {
+                        case RECORD_PUT: {
+                            Link link = decodeLink(payload);
+                            state.put(link.getShortCode(), link);
+                            break;
+                        }
+                        case RECORD_CLICKS: {
+                            Link link = state.get(readString(in));
+                            if (link != null) {
+                                link.setCurrentClicks(link.getCurrentClicks() + in.readLong());
+                            }
+                            break;
+                        }
+                        case RECORD_DELETE:
+                            state.remove(readString(in));
+                            break;
+                        case RECORD_COMPACTED:
+                            state.clear();
+                            break;
+                        default:
+                            break;
+                    }
+                });
+            }
+
+            // Пишем живые ссылки во временный файл
+            Map<String, Long> newOffsets = new HashMap<>();
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long position = writeRecord(out, 0, RECORD_COMPACTED, new byte[0]);
+                for (Link link : state.values()) {
+                    newOffsets.put(link.getShortCode(), position);
+                    position += writeRecord(out, position, RECORD_PUT, encodeLink(link));
+                }
+                out.force(true);
+            }
+
+            // Подменяем сегменты и переводим индекс на новые смещения
+            lock.writeLock().lock();
+            try {
+                for (long segmentId : sealed) {
+                    segments.remove(segmentId).close();
+                }
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                segments.put(targetId, FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE));
+                for (Map.Entry<String, Long> e : newOffsets.entrySet()) {
+                    Entry entry = index.get(e.getKey());
+                    if (entry != null && entry.segmentId <= targetId) {
+                        entry.segmentId = targetId;
+                        entry.offset = e.getValue();
+                    }
+                }
+                for (long segmentId : sealed) {
+                    if (segmentId != targetId) {
+                        Files.deleteIfExists(segmentPath(segmentId));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            System.out.println("Журнал ссылок сжат: сегментов " + sealed.size() + " -> 1, живых ссылок " + state.size());
+        } catch (IOException e) {
+            System.out.println("Ошибка сжатия журнала ссылок: " + e.getMessage());
+        }
+    }
+
+    /*
+    Метод дописывает запись в активный сегмент и возвращает её смещение.
+    Если сегмент достиг предельного размера, сначала открывается новый.
+    Вызывается под блокировкой на запись.
+    */
+    private long append(byte type, byte[] payload) throws IOException {
+        if (activeSize >= segmentBytes) {
+            writeBatchBuffer();
+            segments.get(activeSegmentId).force(false);
+            openSegment(activeSegmentId + 1);
+        }
+        long offset = activeSize;
+        int length = HEADER_BYTES + payload.length + CRC_BYTES;
+        if (batchBuffer != null && length <= batchBuffer.capacity()) {
+            if (length > batchBuffer.remaining()) {
+                writeBatchBuffer();
+            }
+            putRecord(batchBuffer, type, payload);
+            activeSize += length;
+            return offset;
+        }
+        writeBatchBuffer();
+        activeSize += writeRecord(segments.get(activeSegmentId), offset, type, payload);
+        return offset;
+    }
+
+    // Записывает собранные записи пачки в конец активного сегмента
+    private void writeBatchBuffer() throws IOException {
+        if (batchBuffer == null || batchBuffer.position() == 0) {
+            return;
+        }
+        batchBuffer.flip();
+        int length = batchBuffer.remaining();
+        long position = activeSize - length;
+        FileChannel channel = segments.get(activeSegmentId);
+        while (batchBuffer.hasRemaining()) {
+            position += channel.write(batchBuffer, position);
+        }
+        batchBuffer.clear();
+        BYTES_WRITTEN.add(length);
+    }
+
+    private void openSegment(long segmentId) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(segmentId),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segments.put(segmentId, channel);
+        activeSegmentId = segmentId;
+        activeSize = channel.size();
+    }
+
+    // Запись одной записи в канал по позиции, возвращает её длину в байтах
+    private static int writeRecord(FileChannel channel, long position, byte type, byte[] payload) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length + CRC_BYTES);
+        putRecord(buffer, type, payload);
+        buffer.flip();
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        BYTES_WRITTEN.add(length);
+        return length;
+    }
+
+    private static void putRecord(ByteBuffer buffer, byte type, byte[] payload) {
+        buffer.put(type);
+        buffer.putInt(payload.length);
+        buffer.put(payload);
+        buffer.putInt(checksum(type, payload));
+    }
+
+    // Чтение данных записи по смещению
+    private static byte[] readPayload(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, offset);
+        header.flip();
+        header.get();
+        int length = header.getInt();
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, offset + HEADER_BYTES);
+        return payload.array();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Неожиданный конец сегмента");
+            }
+            position += read;
+        }
+    }
+
+    /*
+    Метод последовательно читает сегмент и передаёт каждую целую запись в visitor.
+    Останавливается на первой недописанной или повреждённой записи и возвращает
+    смещение конца последней корректной записи.
+    */
+    private static long scanSegment(Path path, RecordVisitor visitor) throws IOException {
+        long position = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    break;
+                }
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    if (length < 0 || length > MAX_PAYLOAD_BYTES) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    if (in.readInt() != checksum((byte) type, payload)) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                visitor.visit((byte) type, payload, position);
+                position += HEADER_BYTES + payload.length + CRC_BYTES;
+            }
+        }
+        return position;
+    }
+
+    private static int checksum(byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private List<Long> listSegmentIds() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    ids.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                }
+            }
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    private Path segmentPath(long segmentId) {
+        return folder.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+    }
+
+    /*
+    Кодирование записей.
+    Полная запись ссылки хранится в формате LinkCodec. Записи, сделанные до его появления,
+    начинаются с длины кода (первый байт 0) и читаются по-старому.
+    */
+    private static byte[] encodeLink(Link link) {
+        return LinkCodec.encode(link);
+    }
+
+    private static Link decodeLink(byte[] payload) throws IOException {
+        if (payload.length > 0 && payload[0] == LinkCodec.VERSION) {
+            try {
+                return LinkCodec.decode(ByteBuffer.wrap(payload));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        Link link = new Link();
+        link.setShortCode(readString(in));
+        link.setOwnerUuid(readString(in));
+        link.setOriginalUrl(readString(in));
+        link.setCreateTimeMs(in.readLong());
+        link.setTlMinutes(in.readLong());
+        link.setMaxClicks(in.readLong());
+        link.setCurrentClicks(in.readLong());
+        return link;
+    }
+
+    private static byte[] encodeClicks(String shortCode, long delta) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, shortCode);
+        out.writeLong(delta);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeCode(String shortCode) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+        writeString(new DataOutputStream(bytes), shortCode);
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Обработчик записей при последовательном чтении сегмента
+    private interface RecordVisitor {
+        void visit(byte type, byte[] payload, long offset) throws IOException;
+    }
+
+    // Элемент индекса: где лежит последняя полная запись ссылки и текущие значения счётчиков
+    private static final class Entry {
+        private long segmentId;
+        private long offset;
+        private final long createTimeMs;
+        private final long maxClicks;
+        private long clicks;
+
+        private Entry(long segmentId, long offset, long createTimeMs, long maxClicks, long clicks) {
+            this.segmentId = segmentId;
+            this.offset = offset;
+            this.createTimeMs = createTimeMs;
+            this.maxClicks = maxClicks;
+            this.clicks = clicks;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package program;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Scanner;
 
 public class Main {
@@ -8,7 +10,13 @@ public class Main {
     private static final String CONFIG_FILE_PATH = "config.txt"; // файл с настройками
     private static final String LINKS_FOLDER_PATH = "links";  // папка для хранения ссылок
 
+    /*
+    Аргумент командной строки — путь к файлу настроек (по умолчанию config.txt),
+    например, чтобы запустить несколько узлов кластера на одной машине.
+    */
     public static void main(String[] args) {
+        String configFilePath = args.length > 0 ? args[0] : CONFIG_FILE_PATH;
+
         // Создадим папку для ссылок, если не существует
         File linksFolder = new File(LINKS_FOLDER_PATH);
         if (!linksFolder.exists()) {
@@ -16,21 +24,74 @@ public class Main {
         }
 
         // Инициализация сервисов
-        ConfigService configService = new ConfigService(CONFIG_FILE_PATH);
-        UserService userService = new UserService(USERS_FILE_PATH);
-        LinkService linkService = new LinkService(LINKS_FOLDER_PATH);
+        ConfigService configService = new ConfigService(configFilePath);
+        UserService userService = new UserService(USERS_FILE_PATH, configService);
+        SessionManager sessionManager = new SessionManager(configService.getSessionIdleTimeoutMs(),
+                configService.getSessionAbsoluteTimeoutMs(), configService.getSessionMax(),
+                configService.getSessionSweepIntervalMs());
+        sessionManager.start();
+        LinkService linkService = new LinkService(createLinkRepository(configService), configService);
+        linkService.start();
+        // Узел кластера (если задан CLUSTER_NODES)
+        Cluster cluster = startCluster(configService, linkService);
+        // Репликация: сервер для реплик (если задан REPLICATION_PORT) или подключение к ведущему узлу
+        ReplicationServer replicationServer = startReplicationServer(configService, linkService);
+        ReplicationFollower replicationFollower = startReplicationFollower(configService, linkService);
+        // HTTP-сервер переходов по коротким ссылкам (если задан порт)
+        RedirectServer redirectServer = startRedirectServer(linkService, configService, cluster);
+        // Служебный сервер с метриками и выгрузка метрик в файл
+        AdminServer adminServer = startAdminServer(configService, linkService);
+        MetricsReporter metricsReporter = configService.getMetricsDumpIntervalMs() > 0
+                ? new MetricsReporter(configService.getMetricsDumpFile(), configService.getMetricsDumpIntervalMs())
+                : null;
+        if (metricsReporter != null) {
+            metricsReporter.start();
+        }
+
+        // При завершении программы останавливаем серверы и сбрасываем на диск все несохранённые изменения
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (redirectServer != null) {
+                redirectServer.stop();
+            }
+            if (adminServer != null) {
+                adminServer.stop();
+            }
+            if (cluster != null) {
+                cluster.stop();
+            }
+            if (replicationServer != null) {
+                replicationServer.stop();
+            }
+            if (replicationFollower != null) {
+                replicationFollower.stop();
+            }
+            linkService.close();
+            userService.close();
+            sessionManager.close();
+            if (metricsReporter != null) {
+                metricsReporter.close();
+            }
+        }));
+
+        // Без меню программа только обслуживает серверы до завершения процесса
+        if (configService.isHeadless()) {
+            System.out.println("Программа запущена без меню, для завершения остановите процесс");
+            try {
+                Thread.currentThread().join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
 
         // Инициализация контроллеров
-        AuthController authController = new AuthController(userService);
+        AuthController authController = new AuthController(userService, sessionManager);
         LinkController linkController = new LinkController(linkService, configService, authController);
 
         // Инициализируем объект Scanner для чтения ввода пользователя из консоли
         Scanner scanner = new Scanner(System.in);
 
         while (true) {
-            // Перед каждым действием удаляем устаревшие ссылки
-            linkService.cleanupExpiredLinks();
-
             // Выводим меню
             System.out.println("\nГлавное меню:");
             System.out.println("1. Создать пользователя");
@@ -48,38 +109,176 @@ public class Main {
             String choice = scanner.nextLine();
 
             // Вызываем метод для выбранного пункта меню
-            switch (choice) {
-                case "1":
-                    authController.registerUser();
-                    break;
-                case "2":
-                    authController.loginUser();
-                    break;
-                case "3":
-                    linkController.createShortLink(authController.getCurrentUser());
-                    break;
-                case "4":
-                    linkController.listUserLinks(authController.getCurrentUser());
-                    break;
-                case "5":
-                    linkController.goToLink();
-                    break;
-                case "6":
-                    linkController.editLinkLimit(authController.getCurrentUser());
-                    break;
-                case "7":
-                    linkController.deleteLink(authController.getCurrentUser());
-                    break;
-                case "8":
-                    authController.logoutUser();
-                    break;
-                case "0":
-                    System.out.println("Выход из программы...");
-                    System.exit(0);
-                    break;
-                default:
-                    System.out.println("Неверный пункт меню, повторите попытку.");
+            try {
+                switch (choice) {
+                    case "1":
+                        authController.registerUser();
+                        break;
+                    case "2":
+                        authController.loginUser();
+                        break;
+                    case "3":
+                        linkController.createShortLink(authController.getCurrentUser());
+                        break;
+                    case "4":
+                        linkController.listUserLinks(authController.getCurrentUser());
+                        break;
+                    case "5":
+                        linkController.goToLink();
+                        break;
+                    case "6":
+                        linkController.editLinkLimit(authController.getCurrentUser());
+                        break;
+                    case "7":
+                        linkController.deleteLink(authController.getCurrentUser());
+                        break;
+                    case "8":
+                        authController.logoutUser();
+                        break;
+                    case "0":
+                        System.out.println("Выход из программы...");
+                        System.exit(0);
+                        break;
+                    default:
+                        System.out.println("Неверный пункт меню, повторите попытку.");
+                }
+            } catch (UncheckedIOException e) {
+                // Изменение не подтверждено журналом упреждающей записи
+                System.out.println("Операция не выполнена: " + e.getMessage());
+            } catch (IllegalStateException e) {
+                // Узел-реплика только для чтения или коды ссылок исчерпаны
+                System.out.println("Операция не выполнена: " + e.getMessage());
+            }
+        }
+    }
+
+    /*
+    Метод выбирает хранилище ссылок по параметру LINK_STORAGE из конфигурации.
+    При первом запуске журнального хранилища или хранилища слотов в него импортируются ссылки из папки links.
+    */
+    static LinkRepository createLinkRepository(ConfigService configService) {
+        if ("memory".equals(configService.getLinkStorage())) {
+            System.out.println("Ссылки хранятся только в памяти и будут потеряны при завершении программы");
+            return new InMemoryLinkRepository();
+        }
+        FileLinkRepository fileRepository = new FileLinkRepository(LINKS_FOLDER_PATH);
+        if ("slot".equals(configService.getLinkStorage())) {
+            SlotLinkRepository slotRepository = new SlotLinkRepository(
+                    configService.getSlotStoragePath(),
+                    configService.getSlotChunkBytes());
+            if (slotRepository.size() == 0) {
+                int imported = slotRepository.importFrom(fileRepository);
+                if (imported > 0) {
+                    System.out.println("Импортировано ссылок из папки " + LINKS_FOLDER_PATH + ": " + imported);
+                }
             }
+            return slotRepository;
+        }
+        if (!"log".equals(configService.getLinkStorage())) {
+            return fileRepository;
+        }
+
+        LogLinkRepository logRepository = new LogLinkRepository(
+                configService.getLogStoragePath(),
+                configService.getLogSegmentBytes(),
+                configService.getLogCompactionIntervalMs());
+        if (logRepository.size() == 0) {
+            int imported = logRepository.importFrom(fileRepository);
+            if (imported > 0) {
+                System.out.println("Импортировано ссылок из папки " + LINKS_FOLDER_PATH + ": " + imported);
+            }
+        }
+        return logRepository;
+    }
+
+    /*
+    Метод запускает HTTP-сервер переходов, если в конфигурации задан HTTP_PORT.
+    */
+    private static RedirectServer startRedirectServer(LinkService linkService, ConfigService configService,
+                                                      Cluster cluster) {
+        int port = configService.getHttpPort();
+        if (port <= 0) {
+            return null;
+        }
+        try {
+            RedirectServer server = new RedirectServer(linkService, port, cluster);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            System.out.println("Не удалось запустить HTTP-сервер на порту " + port + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /*
+    Метод запускает узел кластера, если в конфигурации задан CLUSTER_NODES.
+    Без сервера кластера другие узлы не смогут переслать переходы, поэтому при ошибке программа завершается.
+    */
+    private static Cluster startCluster(ConfigService configService, LinkService linkService) {
+        if (!configService.isClusterEnabled()) {
+            return null;
+        }
+        try {
+            Cluster cluster = new Cluster(configService, linkService);
+            cluster.start();
+            return cluster;
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Не удалось запустить узел кластера: " + e.getMessage());
+            linkService.close();
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /*
+    Метод запускает сервер репликации, если в конфигурации задан REPLICATION_PORT.
+    */
+    private static ReplicationServer startReplicationServer(ConfigService configService, LinkService linkService) {
+        int port = configService.getReplicationPort();
+        if (port <= 0) {
+            return null;
+        }
+        try {
+            ReplicationServer server = new ReplicationServer(linkService, port, configService.getReplicationQueueSize());
+            server.start();
+            return server;
+        } catch (IOException e) {
+            System.out.println("Не удалось запустить сервер репликации на порту " + port + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /*
+    Метод запускает реплику, если в конфигурации задан REPLICATION_LEADER.
+    Реплика только читает ссылки: создавать, изменять и удалять их нужно на ведущем узле.
+    */
+    private static ReplicationFollower startReplicationFollower(ConfigService configService, LinkService linkService) {
+        String leader = configService.getReplicationLeader();
+        if (leader.isBlank()) {
+            return null;
+        }
+        ReplicationFollower follower = new ReplicationFollower(linkService, leader,
+                configService.getReplicationClickFlushMs());
+        follower.start();
+        return follower;
+    }
+
+    /*
+    Метод запускает служебный HTTP-сервер (метрики, популярные ссылки), если в конфигурации задан ADMIN_PORT.
+    */
+    private static AdminServer startAdminServer(ConfigService configService, LinkService linkService) {
+        int port = configService.getAdminPort();
+        if (port <= 0) {
+            return null;
+        }
+        try {
+            ClickAnalytics clickAnalytics = linkService.getClickAnalytics();
+            AdminServer server = new AdminServer(port, clickAnalytics != null ? clickAnalytics.getTopLinks() : null);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            System.out.println("Не удалось запустить служебный HTTP-сервер на порту " + port + ": " + e.getMessage());
+            return null;
         }
     }
-}
\ No newline at end of file
+}
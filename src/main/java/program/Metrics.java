@@ -0,0 +1,168 @@
+package program;
+
+import java.lang.ref.WeakReference;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.ToDoubleFunction;
+
+/*
+Реестр метрик приложения: счётчики, гистограммы задержек и вычисляемые показатели.
+Метрики создаются один раз (обычно в static-полях классов) и дальше только обновляются,
+поэтому обновление не выделяет память.
+Экспорт — в текстовом формате Prometheus.
+Имя метрики может содержать метки: "link_clicks_total{status=\"ok\"}".
+*/
+public final class Metrics {
+    // Перцентили, которые выводятся для гистограмм
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private static final Map<String, Entry> REGISTRY = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    // Возвращает счётчик с указанным именем, создавая его при первом обращении
+    public static Counter counter(String name, String help) {
+        return (Counter) REGISTRY.computeIfAbsent(name, n -> new Entry("counter", help, new Counter())).metric;
+    }
+
+    // Возвращает гистограмму задержек (значения в наносекундах, экспорт в секундах)
+    public static LatencyHistogram histogram(String name, String help) {
+        return (LatencyHistogram) REGISTRY.computeIfAbsent(name, n -> new Entry("summary", help, new LatencyHistogram())).metric;
+    }
+
+    // Регистрирует показатель, значение которого вычисляется при экспорте (не привязан к объекту)
+    public static void gauge(String name, String help, DoubleSupplier supplier) {
+        REGISTRY.put(name, new Entry("gauge", help, supplier));
+    }
+
+    /*
+    Регистрирует показатель объекта owner: значение вычисляется функцией value от owner при экспорте.
+    Реестр держит owner по слабой ссылке, поэтому показатель не удерживает в памяти закрытый объект;
+    после того как объект собран, показатель пропадает из экспорта. Функция не должна захватывать owner.
+    */
+    public static <T> void gauge(String name, String help, T owner, ToDoubleFunction<? super T> value) {
+        REGISTRY.put(name, new Entry("gauge", help, new OwnedGauge<>(owner, value)));
+    }
+
+    /*
+    Метод формирует текст всех метрик в формате Prometheus (text exposition format 0.0.4).
+    Метрики с одинаковым именем и разными метками выводятся под общими HELP и TYPE.
+    */
+    public static String toPrometheusText() {
+        StringBuilder out = new StringBuilder(4096);
+        String previousBaseName = null;
+        for (Map.Entry<String, Entry> e : new TreeMap<>(REGISTRY).entrySet()) {
+            String name = e.getKey();
+            Entry entry = e.getValue();
+            // Объект показателя уже собран: запись больше не нужна
+            if (entry.metric instanceof OwnedGauge && !((OwnedGauge<?>) entry.metric).isAlive()) {
+                REGISTRY.remove(name, entry);
+                continue;
+            }
+            String baseName = baseName(name);
+            if (!baseName.equals(previousBaseName)) {
+                out.append("# HELP ").append(baseName).append(' ').append(entry.help).append('\n');
+                out.append("# TYPE ").append(baseName).append(' ').append(entry.type).append('\n');
+                previousBaseName = baseName;
+            }
+
+            if (entry.metric instanceof Counter) {
+                out.append(name).append(' ').append(((Counter) entry.metric).get()).append('\n');
+            } else if (entry.metric instanceof LatencyHistogram) {
+                LatencyHistogram histogram = (LatencyHistogram) entry.metric;
+                for (double quantile : QUANTILES) {
+                    out.append(withLabel(name, "quantile", String.valueOf(quantile))).append(' ')
+                            .append(formatSeconds(histogram.valueAtPercentile(quantile))).append('\n');
+                }
+                out.append(suffixed(name, "_sum")).append(' ').append(formatSeconds(histogram.getSum())).append('\n');
+                out.append(suffixed(name, "_count")).append(' ').append(histogram.getCount()).append('\n');
+            } else {
+                out.append(name).append(' ').append(((DoubleSupplier) entry.metric).getAsDouble()).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    private static String baseName(String name) {
+        int brace = name.indexOf('{');
+        return brace < 0 ? name : name.substring(0, brace);
+    }
+
+    // Добавляет метку к имени (с учётом уже имеющихся меток)
+    private static String withLabel(String name, String label, String value) {
+        String pair = label + "=\"" + value + "\"";
+        int brace = name.indexOf('{');
+        if (brace < 0) {
+            return name + "{" + pair + "}";
+        }
+        return name.substring(0, name.length() - 1) + "," + pair + "}";
+    }
+
+    // Добавляет суффикс к имени перед метками: a{x="1"} -> a_sum{x="1"}
+    private static String suffixed(String name, String suffix) {
+        int brace = name.indexOf('{');
+        return brace < 0 ? name + suffix : name.substring(0, brace) + suffix + name.substring(brace);
+    }
+
+    private static String formatSeconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / NANOS_PER_SECOND);
+    }
+
+    // Счётчик без блокировок (LongAdder распределяет запись между потоками)
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    // Показатель объекта, который держится по слабой ссылке
+    private static final class OwnedGauge<T> implements DoubleSupplier {
+        private final WeakReference<T> owner;
+        private final ToDoubleFunction<? super T> value;
+
+        private OwnedGauge(T owner, ToDoubleFunction<? super T> value) {
+            this.owner = new WeakReference<>(owner);
+            this.value = value;
+        }
+
+        private boolean isAlive() {
+            return owner.get() != null;
+        }
+
+        // Значение показателя (0, если объект собран между проверкой и чтением)
+        @Override
+        public double getAsDouble() {
+            T target = owner.get();
+            return target != null ? value.applyAsDouble(target) : 0;
+        }
+    }
+
+    // Запись реестра: тип для Prometheus, описание и сама метрика
+    private static final class Entry {
+        private final String type;
+        private final String help;
+        private final Object metric;
+
+        private Entry(String type, String help, Object metric) {
+            this.type = type;
+            this.help = help;
+            this.metric = metric;
+        }
+    }
+}
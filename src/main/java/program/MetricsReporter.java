@@ -0,0 +1,55 @@
+package program;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+Периодическая выгрузка метрик в файл (формат Prometheus).
+Файл перезаписывается атомарно, поэтому читатель никогда не увидит его наполовину записанным.
+*/
+public class MetricsReporter {
+    private final Path file;
+    private final long intervalMs;
+    private final ScheduledExecutorService executor;
+
+    public MetricsReporter(String filePath, long intervalMs) {
+        this.file = Paths.get(filePath);
+        this.intervalMs = intervalMs;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Запускает выгрузку раз в intervalMs мс; вызывается после создания объекта
+    public void start() {
+        executor.scheduleWithFixedDelay(this::dump, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+    Метод записывает текущие значения метрик в файл.
+    */
+    public void dump() {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.write(tmp, Metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Ошибка записи метрик в " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Останавливает выгрузку и записывает последние значения
+    public void close() {
+        executor.shutdown();
+        dump();
+    }
+}
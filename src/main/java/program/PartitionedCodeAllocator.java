@@ -0,0 +1,28 @@
+package program;
+
+/*
+Выдача кодов в режиме кластера: коды берутся у обычного распределителя,
+и выдаются только те, что попадают в партиции этого узла (HashRing).
+При N узлах в среднем отбрасывается N - 1 код из N.
+*/
+public class PartitionedCodeAllocator implements ShortCodeAllocator {
+    private final ShortCodeAllocator delegate;
+    private final HashRing ring;
+    private final ClusterNode localNode;
+
+    public PartitionedCodeAllocator(ShortCodeAllocator delegate, HashRing ring, ClusterNode localNode) {
+        this.delegate = delegate;
+        this.ring = ring;
+        this.localNode = localNode;
+    }
+
+    @Override
+    public String nextCode() {
+        while (true) {
+            String code = delegate.nextCode();
+            if (ring.ownerOf(code) == localNode) {
+                return code;
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package program;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/*
+Случайные коды из 8 символов Base62 с проверкой существования по индексу ссылок.
+Используется ThreadLocalRandom, поэтому потоки не делят общий генератор.
+*/
+public class RandomCodeAllocator implements ShortCodeAllocator {
+    // Проверка, занят ли код (обычно — поиск в индексе ссылок)
+    private final Predicate<String> exists;
+
+    public RandomCodeAllocator(Predicate<String> exists) {
+        this.exists = exists;
+    }
+
+    @Override
+    public String nextCode() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] chars = new char[CODE_LENGTH];
+        while (true) {
+            for (int i = 0; i < CODE_LENGTH; i++) {
+                chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+            String code = new String(chars);
+            if (!exists.test(code)) {
+                return code;
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package program;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+Встроенный HTTP-сервер переходов по коротким ссылкам (на основе com.sun.net.httpserver из JDK).
+GET /{shortCode} отвечает 302 с адресом исходной ссылки,
+404 — если ссылки нет, 410 — если срок жизни истёк или лимит переходов исчерпан.
+Правила те же, что и в LinkController.goToLink (через LinkService.registerClick).
+В режиме кластера переход по коду другого узла пересылается владельцу (ответ тот же)
+или отвечает 307 с адресом HTTP-сервера владельца; 502 — если владелец недоступен.
+503 — если переход не удалось записать в журнал упреждающей записи.
+Каждый запрос обрабатывается в отдельном виртуальном потоке.
+*/
+public class RedirectServer {
+    // Очередь ожидающих соединений на сокете
+    private static final int BACKLOG = 4096;
+    // Метрики
+    private static final LatencyHistogram REDIRECT_LATENCY =
+            Metrics.histogram("redirect_seconds{source=\"http\"}", "Время обработки перехода по ссылке");
+    private static final Metrics.Counter RESPONSES_302 =
+            Metrics.counter("http_redirect_responses_total{code=\"302\"}", "Ответы HTTP-сервера переходов");
+    private static final Metrics.Counter RESPONSES_404 =
+            Metrics.counter("http_redirect_responses_total{code=\"404\"}", "Ответы HTTP-сервера переходов");
+    private static final Metrics.Counter RESPONSES_410 =
+            Metrics.counter("http_redirect_responses_total{code=\"410\"}", "Ответы HTTP-сервера переходов");
+    private static final Metrics.Counter RESPONSES_307 =
+            Metrics.counter("http_redirect_responses_total{code=\"307\"}", "Ответы HTTP-сервера переходов");
+    private static final Metrics.Counter RESPONSES_502 =
+            Metrics.counter("http_redirect_responses_total{code=\"502\"}", "Ответы HTTP-сервера переходов");
+    private static final Metrics.Counter RESPONSES_503 =
+            Metrics.counter("http_redirect_responses_total{code=\"503\"}", "Ответы HTTP-сервера переходов");
+
+    private final LinkService linkService;
+    // Кластер (null — узел работает один)
+    private final Cluster cluster;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public RedirectServer(LinkService linkService, int port) throws IOException {
+        this(linkService, port, null);
+    }
+
+    public RedirectServer(LinkService linkService, int port, Cluster cluster) throws IOException {
+        this.linkService = linkService;
+        this.cluster = cluster;
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("HTTP-сервер переходов запущен на порту " + server.getAddress().getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    // Порт, на котором фактически слушает сервер
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /*
+    Обработка одного запроса.
+    */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            // Код ссылки — путь без ведущего слэша
+            long startNs = System.nanoTime();
+            String path = exchange.getRequestURI().getRawPath();
+            String shortCode = path.length() > 1 ? path.substring(1) : "";
+            boolean valid = !shortCode.isEmpty() && shortCode.indexOf('/') < 0;
+            if (valid && cluster != null && !cluster.isLocal(shortCode)) {
+                handleRemote(exchange, shortCode, startNs);
+                return;
+            }
+            Link link = valid ? linkService.loadLink(shortCode) : null;
+
+            ClickStatus status;
+            try {
+                status = linkService.registerClick(link);
+            } catch (UncheckedIOException e) {
+                // Переход не подтверждён журналом: не отвечаем так, будто он засчитан
+                RESPONSES_503.increment();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            REDIRECT_LATENCY.recordSince(startNs);
+            respond(exchange, status, status == ClickStatus.OK ? link.getOriginalUrl() : null);
+        }
+    }
+
+    /*
+    Переход по коду, который принадлежит другому узлу кластера.
+    */
+    private void handleRemote(HttpExchange exchange, String shortCode, long startNs) throws IOException {
+        if (cluster.isRedirectMode()) {
+            RESPONSES_307.increment();
+            exchange.getResponseHeaders().set("Location", cluster.redirectUrl(shortCode));
+            exchange.sendResponseHeaders(307, -1);
+            return;
+        }
+        ClusterClient.RemoteClick click;
+        try {
+            click = cluster.forwardClick(shortCode);
+        } catch (IOException e) {
+            RESPONSES_502.increment();
+            exchange.sendResponseHeaders(502, -1);
+            return;
+        }
+        REDIRECT_LATENCY.recordSince(startNs);
+        respond(exchange, click.getStatus(), click.getOriginalUrl());
+    }
+
+    // Ответ по результату перехода: 302 на исходную ссылку, 410 или 404
+    private void respond(HttpExchange exchange, ClickStatus status, String originalUrl) throws IOException {
+        switch (status) {
+            case OK:
+                RESPONSES_302.increment();
+                exchange.getResponseHeaders().set("Location", originalUrl);
+                exchange.sendResponseHeaders(302, -1);
+                break;
+            case EXPIRED:
+            case LIMIT_REACHED:
+                RESPONSES_410.increment();
+                exchange.sendResponseHeaders(410, -1);
+                break;
+            default:
+                RESPONSES_404.increment();
+                exchange.sendResponseHeaders(404, -1);
+                break;
+        }
+    }
+}
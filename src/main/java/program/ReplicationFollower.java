@@ -0,0 +1,215 @@
+package program;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Реплика: держит копию ссылок ведущего узла (REPLICATION_LEADER) и обслуживает переходы сама.
+При подключении получает состояние ведущего, удаляет у себя ссылки, которых в нём нет,
+и дальше применяет поток изменений (см. ReplicationServer). При разрыве соединения
+подключается заново раз в RECONNECT_MS и снова получает состояние.
+
+Переход по ссылке реплика засчитывает в своей копии и отвечает сразу, а ведущему узлу
+переходы отправляются пачками раз в REPLICATION_CLICK_FLUSH_MS мс (код и число переходов).
+Поэтому лимит переходов на реплике соблюдается с точностью до отставания репликации.
+
+Отставание: replication_lag_ms — задержка последнего применённого изменения
+от момента на ведущем узле, replication_lag_records — сколько изменений ведущего ещё не применено.
+*/
+public class ReplicationFollower implements LinkService.ClickForwarder {
+    private static final long RECONNECT_MS = 1000;
+
+    private static final Metrics.Counter RECORDS_APPLIED =
+            Metrics.counter("replication_records_applied_total", "Изменения, применённые репликой");
+
+    private final LinkService linkService;
+    private final String host;
+    private final int port;
+    private final long clickFlushMs;
+    // Переходы, ещё не отправленные ведущему: код -> число переходов
+    private final Map<String, Integer> pendingClicks = new ConcurrentHashMap<>();
+    private final Thread receiver;
+    private final Thread clickSender;
+    private volatile Socket socket;
+    private volatile DataOutputStream out;
+    private volatile boolean stopped = false;
+    // Отставание последнего применённого изменения
+    private volatile long lagMs = -1;
+    private volatile long leaderSequence;
+    private volatile long appliedSequence;
+
+    /*
+    leader — адрес ведущего узла host:port.
+    */
+    public ReplicationFollower(LinkService linkService, String leader, long clickFlushMs) {
+        int colon = leader.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Адрес ведущего узла должен быть задан как host:port: " + leader);
+        }
+        this.linkService = linkService;
+        this.host = leader.substring(0, colon);
+        this.port = Integer.parseInt(leader.substring(colon + 1));
+        this.clickFlushMs = clickFlushMs;
+        this.receiver = new Thread(this::receiveLoop, "replication-follower");
+        receiver.setDaemon(true);
+        this.clickSender = new Thread(this::clickLoop, "replication-clicks");
+        clickSender.setDaemon(true);
+    }
+
+    public void start() {
+        Metrics.gauge("replication_lag_ms", "Задержка последнего применённого изменения ведущего узла",
+                this, ReplicationFollower::getLagMs);
+        Metrics.gauge("replication_lag_records", "Изменения ведущего узла, ещё не применённые репликой",
+                this, ReplicationFollower::getLagRecords);
+        linkService.setClickForwarder(this);
+        receiver.start();
+        clickSender.start();
+    }
+
+    public void stop() {
+        stopped = true;
+        sendClicks();
+        closeSocket();
+        clickSender.interrupt();
+    }
+
+    @Override
+    public void forwardClicks(String shortCode, int count) {
+        pendingClicks.merge(shortCode, count, Integer::sum);
+    }
+
+    public long getLagMs() {
+        return lagMs;
+    }
+
+    public long getLagRecords() {
+        return Math.max(0, leaderSequence - appliedSequence);
+    }
+
+    /*
+    Подключение к ведущему узлу и применение записей, пока соединение живо.
+    */
+    private void receiveLoop() {
+        while (!stopped) {
+            try (Socket connection = new Socket()) {
+                connection.connect(new InetSocketAddress(host, port), (int) RECONNECT_MS);
+                connection.setTcpNoDelay(true);
+                socket = connection;
+                out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+                System.out.println("Реплика подключена к ведущему узлу " + host + ":" + port);
+                receive(new DataInputStream(new BufferedInputStream(connection.getInputStream(), 1 << 16)));
+            } catch (IOException | RuntimeException e) {
+                // Повреждённая запись тоже разрывает соединение: после переподключения состояние придёт заново
+                if (!stopped) {
+                    System.out.println("Нет соединения с ведущим узлом " + host + ":" + port + ": "
+                            + (e instanceof EOFException ? "соединение закрыто" : e.getMessage()));
+                }
+            } finally {
+                out = null;
+                socket = null;
+            }
+            if (!stopped) {
+                try {
+                    Thread.sleep(RECONNECT_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void receive(DataInputStream in) throws IOException {
+        long startMs = System.currentTimeMillis();
+        // Коды из состояния ведущего (до отметки его конца)
+        Set<String> stateCodes = new HashSet<>();
+        while (!stopped) {
+            byte type = in.readByte();
+            long seq = in.readLong();
+            long leaderTimeMs = in.readLong();
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            if (type == ReplicationServer.TYPE_HEARTBEAT) {
+                leaderSequence = seq;
+                lagMs = Math.max(0, System.currentTimeMillis() - leaderTimeMs);
+            } else if (type == ReplicationServer.TYPE_STATE_END) {
+                int removed = linkService.retainLinks(stateCodes);
+                System.out.println("Реплика получила состояние ведущего узла: " + stateCodes.size() + " ссылок"
+                        + (removed > 0 ? ", удалено устаревших: " + removed : "")
+                        + " (за " + (System.currentTimeMillis() - startMs) + " мс)");
+                stateCodes = null;
+                leaderSequence = seq;
+                appliedSequence = seq;
+            } else {
+                if (stateCodes != null) {
+                    stateCodes.add(LinkCodec.decode(ByteBuffer.wrap(payload)).getShortCode());
+                }
+                linkService.applyReplicatedChange(type, payload);
+                RECORDS_APPLIED.increment();
+                if (seq > 0) {
+                    appliedSequence = seq;
+                    leaderSequence = Math.max(leaderSequence, seq);
+                    lagMs = Math.max(0, System.currentTimeMillis() - leaderTimeMs);
+                }
+            }
+        }
+    }
+
+    // Раз в clickFlushMs отправляет накопленные переходы ведущему узлу
+    private void clickLoop() {
+        while (!stopped) {
+            try {
+                Thread.sleep(clickFlushMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            sendClicks();
+        }
+    }
+
+    /*
+    Метод отправляет накопленные переходы. Без соединения переходы остаются в очереди
+    до подключения. Если запись или сброс потока оборвались, все взятые из очереди в этом проходе
+    переходы возвращаются в неё: часть из них могла уже дойти до ведущего узла, поэтому
+    доставка "хотя бы один раз" — после обрыва переход может быть засчитан дважды, но не теряется.
+    */
+    private synchronized void sendClicks() {
+        DataOutputStream output = out;
+        if (output == null || pendingClicks.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> taken = new HashMap<>();
+        try {
+            for (String shortCode : pendingClicks.keySet()) {
+                Integer count = pendingClicks.remove(shortCode);
+                if (count == null) {
+                    continue;
+                }
+                taken.put(shortCode, count);
+                output.writeUTF(shortCode);
+                output.writeInt(count);
+            }
+            output.flush();
+        } catch (IOException e) {
+            taken.forEach((shortCode, count) -> pendingClicks.merge(shortCode, count, Integer::sum));
+            closeSocket();
+        }
+    }
+
+    private void closeSocket() {
+        Socket connection = socket;
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (IOException e) {
+                // Соединение уже закрыто
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package program;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Ведущий узел репликации: передаёт репликам все изменения ссылок по TCP (порт REPLICATION_PORT).
+
+Подключившаяся реплика сначала получает состояние (все живые ссылки), затем отметку конца
+состояния и дальше поток изменений. Изменения, случившиеся во время передачи состояния,
+копятся в очереди реплики и передаются после него, поэтому реплика ничего не пропускает.
+Если реплика не успевает и её очередь (REPLICATION_QUEUE_SIZE записей) переполнена,
+соединение закрывается: реплика подключится заново и снова получит состояние.
+Раз в HEARTBEAT_MS без изменений отправляется пустая запись с номером последнего изменения,
+по ней реплика измеряет отставание.
+
+Запись ведущего: тип (1 байт), номер изменения (8 байт), время на ведущем в мс (8 байт),
+длина данных (4 байта), данные (запись журнала LinkService).
+В обратную сторону реплика присылает переходы: код (writeUTF) и число переходов (4 байта).
+*/
+public class ReplicationServer implements LinkService.ChangeListener {
+    // Служебные типы записей (типы изменений — типы записей журнала LinkService)
+    static final byte TYPE_STATE_END = 100;  // состояние передано, дальше поток изменений
+    static final byte TYPE_HEARTBEAT = 101;  // изменений нет, номер последнего изменения
+    static final long HEARTBEAT_MS = 1000;
+    private static final int BACKLOG = 64;
+
+    private static final Metrics.Counter RECORDS_SENT =
+            Metrics.counter("replication_records_sent_total", "Записи, переданные репликам");
+    private static final Metrics.Counter FOLLOWERS_DROPPED =
+            Metrics.counter("replication_followers_dropped_total", "Реплики, отключённые из-за переполнения очереди");
+    private static final Metrics.Counter FORWARDED_CLICKS =
+            Metrics.counter("replication_forwarded_clicks_total", "Переходы, полученные от реплик");
+
+    private final LinkService linkService;
+    private final int queueSize;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final Thread acceptor;
+    private final List<FollowerSession> sessions = new CopyOnWriteArrayList<>();
+    // Номер последнего изменения
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean stopped = false;
+
+    public ReplicationServer(LinkService linkService, int port, int queueSize) throws IOException {
+        this.linkService = linkService;
+        this.queueSize = queueSize;
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), BACKLOG);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.acceptor = new Thread(this::acceptLoop, "replication-server");
+        acceptor.setDaemon(true);
+    }
+
+    public void start() {
+        Metrics.gauge("replication_followers", "Подключённые реплики", this, server -> server.sessions.size());
+        Metrics.gauge("replication_queue_records", "Изменения в очередях реплик, ещё не переданные", this, server -> {
+            long backlog = 0;
+            for (FollowerSession session : server.sessions) {
+                backlog += session.queue.size();
+            }
+            return backlog;
+        });
+        linkService.addChangeListener(this);
+        acceptor.start();
+        System.out.println("Сервер репликации запущен на порту " + serverSocket.getLocalPort());
+    }
+
+    public void stop() {
+        stopped = true;
+        linkService.removeChangeListener(this);
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.out.println("Ошибка остановки сервера репликации: " + e.getMessage());
+        }
+        for (FollowerSession session : sessions) {
+            session.close();
+        }
+        executor.shutdownNow();
+    }
+
+    /*
+    Изменение ссылки: запись один раз кодируется и ставится в очереди всех реплик.
+    Вызывается потоками, изменившими ссылку, поэтому не блокируется.
+    */
+    @Override
+    public void onChange(byte type, byte[] payload) {
+        if (sessions.isEmpty()) {
+            sequence.incrementAndGet();
+            return;
+        }
+        byte[] frame = encodeFrame(type, sequence.incrementAndGet(), payload);
+        for (FollowerSession session : sessions) {
+            if (!session.queue.offer(frame)) {
+                FOLLOWERS_DROPPED.increment();
+                System.out.println("Реплика " + session.address + " не успевает получать изменения, соединение закрыто");
+                session.close();
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        while (!stopped) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                FollowerSession session = new FollowerSession(socket);
+                // Очередь начинает копить изменения до передачи состояния
+                sessions.add(session);
+                executor.execute(session::sendLoop);
+                executor.execute(session::receiveLoop);
+            } catch (IOException e) {
+                if (!stopped) {
+                    System.out.println("Ошибка приёма соединения реплики: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static byte[] encodeFrame(byte type, long seq, byte[] payload) {
+        return ByteBuffer.allocate(1 + Long.BYTES + Long.BYTES + Integer.BYTES + payload.length)
+                .put(type).putLong(seq).putLong(System.currentTimeMillis())
+                .putInt(payload.length).put(payload).array();
+    }
+
+    // Соединение с одной репликой
+    private final class FollowerSession {
+        private final Socket socket;
+        private final String address;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(queueSize);
+
+        FollowerSession(Socket socket) {
+            this.socket = socket;
+            this.address = String.valueOf(socket.getRemoteSocketAddress());
+        }
+
+        /*
+        Передача реплике: состояние, отметка его конца, затем изменения из очереди.
+        */
+        void sendLoop() {
+            long startMs = System.currentTimeMillis();
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+                long[] links = {0};
+                linkService.replayState((type, payload) -> {
+                    try {
+                        out.write(encodeFrame(type, 0, payload));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    links[0]++;
+                });
+                out.write(encodeFrame(TYPE_STATE_END, sequence.get(), new byte[0]));
+                out.flush();
+                System.out.println("Реплике " + address + " передано состояние: " + links[0] + " ссылок за "
+                        + (System.currentTimeMillis() - startMs) + " мс");
+                while (!stopped) {
+                    byte[] frame = queue.poll(HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+                    if (frame == null) {
+                        out.write(encodeFrame(TYPE_HEARTBEAT, sequence.get(), new byte[0]));
+                    } else {
+                        // Всё, что накопилось, отправляем одной пачкой
+                        do {
+                            out.write(frame);
+                            RECORDS_SENT.increment();
+                        } while ((frame = queue.poll()) != null);
+                    }
+                    out.flush();
+                }
+            } catch (IOException | UncheckedIOException e) {
+                if (!stopped && !socket.isClosed()) {
+                    System.out.println("Соединение с репликой " + address + " разорвано: " + e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        // Приём переходов, которые реплика выполнила у себя
+        void receiveLoop() {
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                while (true) {
+                    String shortCode = in.readUTF();
+                    int count = in.readInt();
+                    FORWARDED_CLICKS.add(count);
+                    linkService.registerClicks(linkService.loadLink(shortCode), count);
+                }
+            } catch (IOException e) {
+                // Реплика отключилась
+            } catch (UncheckedIOException e) {
+                // Переходы не записаны в журнал: соединение закрывается, реплика переподключится
+                System.out.println("Переходы от реплики " + address + " не сохранены: " + e.getMessage());
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            sessions.remove(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Соединение уже закрыто
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package program;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Коды из монотонно растущего 64-битного счётчика, закодированного в Base62.
+Счётчик выдаётся блоками: блок арендуется в файле аренды под файловой блокировкой,
+поэтому несколько потоков и несколько процессов никогда не получат одинаковый номер.
+Внутри блока номер берётся одним атомарным инкрементом, без обращения к диску.
+Перед кодированием номер перемешивается обратимой перестановкой, чтобы соседние коды
+не шли подряд и их нельзя было перебрать.
+*/
+public class SequentialCodeAllocator implements ShortCodeAllocator {
+    // Количество различных кодов длины 8: 62^8
+    private static final long CODE_SPACE = 218_340_105_584_896L;
+    // Перестановка работает над 48-битными числами (2^48 > 62^8), половины по 24 бита
+    private static final int HALF_BITS = 24;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int FEISTEL_ROUNDS = 4;
+
+    private final String leaseFilePath;
+    private final long blockSize;
+    private volatile Block current;
+
+    public SequentialCodeAllocator(String leaseFilePath, long blockSize) {
+        this.leaseFilePath = leaseFilePath;
+        this.blockSize = blockSize;
+        this.current = leaseBlock();
+    }
+
+    @Override
+    public String nextCode() {
+        return encode(permute(nextId()));
+    }
+
+    /*
+    Метод выдаёт следующий номер. Если текущий блок исчерпан, один из потоков
+    арендует новый, остальные повторяют попытку уже в нём.
+    */
+    private long nextId() {
+        while (true) {
+            Block block = current;
+            long id = block.next.getAndIncrement();
+            if (id < block.end) {
+                return id;
+            }
+            refill(block);
+        }
+    }
+
+    private synchronized void refill(Block exhausted) {
+        if (current == exhausted) {
+            current = leaseBlock();
+        }
+    }
+
+    /*
+    Метод аренды блока номеров: под файловой блокировкой читаем первый свободный номер,
+    сдвигаем его на размер блока и сразу сбрасываем на диск.
+    */
+    private Block leaseBlock() {
+        try (FileChannel channel = FileChannel.open(Paths.get(leaseFilePath),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+                long start = 0;
+                if (channel.size() >= Long.BYTES) {
+                    channel.read(buffer, 0);
+                    buffer.flip();
+                    start = buffer.getLong();
+                }
+                long end = Math.min(start + blockSize, CODE_SPACE);
+                if (start >= end) {
+                    throw new IllegalStateException("Пространство кодов коротких ссылок исчерпано");
+                }
+                buffer.clear();
+                buffer.putLong(end);
+                buffer.flip();
+                channel.write(buffer, 0);
+                channel.force(true);
+                return new Block(start, end);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка аренды блока кодов в " + leaseFilePath, e);
+        }
+    }
+
+    /*
+    Обратимая перестановка чисел [0, 62^8): сеть Фейстеля над 48 битами.
+    Если результат выходит за пределы пространства кодов, перестановка применяется повторно
+    (cycle walking) — так сохраняется взаимная однозначность, а значит и уникальность кодов.
+    */
+    private static long permute(long id) {
+        long value = id;
+        do {
+            long left = value >>> HALF_BITS;
+            long right = value & HALF_MASK;
+            for (int round = 0; round < FEISTEL_ROUNDS; round++) {
+                long mixed = left ^ (roundFunction(right, round) & HALF_MASK);
+                left = right;
+                right = mixed;
+            }
+            value = (left << HALF_BITS) | right;
+        } while (value >= CODE_SPACE);
+        return value;
+    }
+
+    private static long roundFunction(long half, int round) {
+        long x = (half + round) * 0x9E3779B97F4A7C15L;
+        return x ^ (x >>> 29);
+    }
+
+    // Кодирование числа в 8 символов Base62 (с ведущими нулями)
+    private static String encode(long value) {
+        char[] chars = new char[CODE_LENGTH];
+        for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value % ALPHABET.length)];
+            value /= ALPHABET.length;
+        }
+        return new String(chars);
+    }
+
+    // Арендованный блок номеров [next, end)
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
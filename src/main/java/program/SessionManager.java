@@ -0,0 +1,169 @@
+package program;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+Сессии авторизованных пользователей: вход выдаёт непрозрачный токен (32 случайных байта
+SecureRandom в Base64 URL), по которому затем определяется пользователь.
+
+Сессия истекает, если токеном не пользовались SESSION_IDLE_TIMEOUT_MS мс
+или с входа прошло SESSION_ABSOLUTE_TIMEOUT_MS мс. Проверка токена — один поиск
+в ConcurrentHashMap без блокировок и выделения памяти; время последнего обращения
+обновляется не чаще раза в секунду (и не реже 10 раз за SESSION_IDLE_TIMEOUT_MS),
+чтобы частые запросы не писали в общую память.
+Фоновый поток раз в SESSION_SWEEP_INTERVAL_MS мс удаляет истёкшие сессии.
+Число сессий ограничено SESSION_MAX: при переполнении вытесняются самые старые.
+*/
+public class SessionManager {
+    // Длина токена в байтах (256 бит)
+    private static final int TOKEN_BYTES = 32;
+    // Точность времени последнего обращения
+    private static final long TOUCH_GRANULARITY_MS = 1000;
+
+    private static final Metrics.Counter SESSIONS_CREATED =
+            Metrics.counter("sessions_created_total", "Созданные сессии");
+    private static final Metrics.Counter SESSIONS_EXPIRED =
+            Metrics.counter("sessions_expired_total", "Сессии, завершённые по истечении времени");
+    private static final Metrics.Counter SESSIONS_EVICTED =
+            Metrics.counter("sessions_evicted_total", "Сессии, вытесненные при превышении SESSION_MAX");
+
+    private final long idleTimeoutMs;
+    private final long touchIntervalMs;
+    private final long absoluteTimeoutMs;
+    private final int maxSessions;
+    private final long sweepIntervalMs;
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    // Токен -> сессия
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    // Сессии в порядке создания: голова — самая старая (для вытеснения)
+    private final Queue<Session> byCreation = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService sweeper;
+
+    public SessionManager(long idleTimeoutMs, long absoluteTimeoutMs, int maxSessions, long sweepIntervalMs) {
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.touchIntervalMs = Math.min(TOUCH_GRANULARITY_MS, idleTimeoutMs / 10);
+        this.absoluteTimeoutMs = absoluteTimeoutMs;
+        this.maxSessions = maxSessions;
+        this.sweepIntervalMs = sweepIntervalMs;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Запускает фоновое удаление просроченных сессий; вызывается после создания объекта
+    public void start() {
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+        Metrics.gauge("sessions_active", "Активные сессии", this, manager -> manager.sessions.size());
+    }
+
+    /*
+    Метод создаёт сессию пользователя и возвращает её токен.
+    */
+    public String createSession(User user) {
+        while (sessions.size() >= maxSessions && evictOldest()) {
+            SESSIONS_EVICTED.increment();
+        }
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = encoder.encodeToString(bytes);
+        Session session = new Session(token, user, System.currentTimeMillis());
+        sessions.put(token, session);
+        byCreation.add(session);
+        SESSIONS_CREATED.increment();
+        return token;
+    }
+
+    /*
+    Метод возвращает пользователя по токену или null, если сессии нет или она истекла.
+    */
+    public User getUser(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long nowMs = System.currentTimeMillis();
+        if (session.isExpired(nowMs, idleTimeoutMs, absoluteTimeoutMs)) {
+            if (sessions.remove(token, session)) {
+                SESSIONS_EXPIRED.increment();
+            }
+            return null;
+        }
+        if (nowMs - session.lastAccessMs >= touchIntervalMs) {
+            session.lastAccessMs = nowMs;
+        }
+        return session.user;
+    }
+
+    // Завершает сессию (выход); false — такой сессии не было
+    public boolean invalidate(String token) {
+        return token != null && sessions.remove(token) != null;
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    /*
+    Проход фонового потока: удаляет истёкшие сессии и записи очереди вытеснения
+    для уже завершённых сессий, поэтому очередь не растёт больше числа сессий.
+    */
+    private void sweep() {
+        long nowMs = System.currentTimeMillis();
+        sessions.values().removeIf(session -> {
+            if (session.isExpired(nowMs, idleTimeoutMs, absoluteTimeoutMs)) {
+                SESSIONS_EXPIRED.increment();
+                return true;
+            }
+            return false;
+        });
+        byCreation.removeIf(session -> sessions.get(session.token) != session);
+    }
+
+    // Вытесняет самую старую живую сессию; false — вытеснять нечего
+    private boolean evictOldest() {
+        Session oldest;
+        while ((oldest = byCreation.poll()) != null) {
+            if (sessions.remove(oldest.token, oldest)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Сессия: пользователь, время входа и последнего обращения
+    private static final class Session {
+        private final String token;
+        private final User user;
+        private final long createdMs;
+        private volatile long lastAccessMs;
+
+        Session(String token, User user, long createdMs) {
+            this.token = token;
+            this.user = user;
+            this.createdMs = createdMs;
+            this.lastAccessMs = createdMs;
+        }
+
+        boolean isExpired(long nowMs, long idleTimeoutMs, long absoluteTimeoutMs) {
+            return nowMs - lastAccessMs >= idleTimeoutMs || nowMs - createdMs >= absoluteTimeoutMs;
+        }
+    }
+}
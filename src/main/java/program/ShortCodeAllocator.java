@@ -0,0 +1,15 @@
+package program;
+
+/*
+Интерфейс выдачи кодов коротких ссылок.
+Реализация отвечает за то, чтобы один и тот же код не выдавался дважды.
+*/
+public interface ShortCodeAllocator {
+    // Длина кода ссылки
+    int CODE_LENGTH = 8;
+    // Алфавит кода (Base62: A-Z, a-z, 0-9)
+    char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
+    // Выдаёт следующий свободный код
+    String nextCode();
+}
@@ -0,0 +1,597 @@
+package program;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/*
+Хранилище ссылок в отображаемом в память файле с ячейками (слотами) фиксированного размера.
+
+slots.dat — слоты по 64 байта (слот 0 — заголовок). В слоте лежат код ссылки, упакованный в long,
+createTimeMs, tlMinutes, maxClicks, currentClicks и указатель на запись в data.dat.
+data.dat — дописываемый файл с кодом, владельцем и исходным URL ссылки.
+
+Числа в слотах меняются на месте атомарными операциями VarHandle прямо в отображённом буфере,
+поэтому изменение счётчика — одна запись в память, без сериализации и без объектов в куче.
+Файл слотов отображается кусками по chunkBytes и растёт по одному куску.
+При старте разбирать ничего не нужно: индекс кодов строится по слотам, данные ссылок читаются по запросу.
+Владелец и URL ссылки после создания не меняются, поэтому при записи существующей ссылки
+обновляются только числа в слоте.
+*/
+public class SlotLinkRepository implements LinkRepository {
+    private static final Metrics.Counter BYTES_WRITTEN =
+            Metrics.counter("link_storage_bytes_written_total{store=\"slot\"}", "Байты, записанные хранилищем ссылок");
+
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final int SLOT_BYTES = 64;
+    // Поля слота (смещения в байтах)
+    private static final int CODE_KEY = 0;
+    private static final int CREATE_TIME_MS = 8;
+    private static final int TL_MINUTES = 16;
+    private static final int MAX_CLICKS = 24;
+    private static final int CURRENT_CLICKS = 32;
+    private static final int DATA_OFFSET = 40;
+    private static final int DATA_LENGTH = 48;
+    private static final int STATE = 52;
+    private static final int STATE_FREE = 0;
+    private static final int STATE_LIVE = 1;
+    // Поля заголовка в слоте 0
+    private static final long MAGIC = 0x534C4F5453544F52L; // "SLOTSTOR"
+    private static final long VERSION = 1;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 8;
+    private static final int HEADER_SLOT_COUNT = 16;
+    private static final int HEADER_CHUNK_BYTES = 24;
+
+    // Код, который нельзя упаковать в long (не Base62 или длиннее 10 символов), ищется в overflowIndex
+    private static final long NOT_PACKED = 0;
+    private static final byte[] BASE62_DIGITS = new byte[128];
+
+    static {
+        Arrays.fill(BASE62_DIGITS, (byte) -1);
+        for (int i = 0; i < ShortCodeAllocator.ALPHABET.length; i++) {
+            BASE62_DIGITS[ShortCodeAllocator.ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private final FileChannel slotsChannel;
+    private final FileChannel dataChannel;
+    private final long chunkBytes;
+    private final int slotsPerChunk;
+    private volatile MappedByteBuffer[] chunks;
+    // Создание и удаление слотов берут блокировку на запись, чтение и изменение чисел в слотах — на чтение
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Индекс кодов: открытая адресация, в ячейке — номер слота (0 — пусто), ключ читается из слота
+    private int[] table = new int[1024];
+    private int tableEntries;
+    private final Map<String, Integer> overflowIndex = new HashMap<>();
+    // Освободившиеся слоты для повторного использования
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+    private int slotCount;
+    private long dataEnd;
+    private int liveCount;
+
+    /*
+    Объявляем конструктор класса: открываем (или создаём) файлы хранилища,
+    отображаем слоты в память и строим индекс кодов.
+    */
+    public SlotLinkRepository(String folderPath, long chunkBytes) {
+        Path folder = Paths.get(folderPath);
+        try {
+            Files.createDirectories(folder);
+            this.slotsChannel = FileChannel.open(folder.resolve("slots.dat"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.dataChannel = FileChannel.open(folder.resolve("data.dat"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            long storedChunkBytes = readStoredChunkBytes();
+            long effectiveChunkBytes = storedChunkBytes > 0 ? storedChunkBytes : chunkBytes;
+            this.chunkBytes = Math.max(SLOT_BYTES, effectiveChunkBytes / SLOT_BYTES * SLOT_BYTES);
+            this.slotsPerChunk = (int) (this.chunkBytes / SLOT_BYTES);
+
+            long fileSize = slotsChannel.size();
+            int chunkCount = (int) Math.max(1, (fileSize + this.chunkBytes - 1) / this.chunkBytes);
+            MappedByteBuffer[] mapped = new MappedByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                mapped[i] = mapChunk(i);
+            }
+            this.chunks = mapped;
+            this.dataEnd = dataChannel.size();
+
+            if (storedChunkBytes > 0) {
+                recover();
+            } else {
+                MappedByteBuffer header = chunks[0];
+                LONG.setVolatile(header, HEADER_VERSION, VERSION);
+                LONG.setVolatile(header, HEADER_CHUNK_BYTES, this.chunkBytes);
+                LONG.setVolatile(header, HEADER_SLOT_COUNT, 1L);
+                LONG.setVolatile(header, HEADER_MAGIC, MAGIC);
+                this.slotCount = 1;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка открытия хранилища слотов " + folderPath, e);
+        }
+    }
+
+    /*
+    Метод перебирает все живые слоты по порядку.
+    */
+    @Override
+    public void forEach(Consumer<Link> consumer) {
+        lock.readLock().lock();
+        try {
+            for (int slot = 1; slot < slotCount; slot++) {
+                if ((int) INT.getVolatile(chunkOf(slot), offsetOf(slot) + STATE) == STATE_LIVE) {
+                    consumer.accept(readLink(slot));
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка чтения хранилища слотов: " + e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Link get(String shortCode) {
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(shortCode);
+            return slot == 0 ? null : readLink(slot);
+        } catch (IOException e) {
+            System.out.println("Ошибка чтения ссылки: " + e.getMessage());
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+    Метод сохранения ссылки.
+    Для существующей ссылки на месте перезаписываются четыре числа слота. Счётчик переходов
+    записывается целиком, поэтому запись идёт под блокировкой на запись: иначе она могла бы
+    перемешаться с getAndAdd из incrementClicks (который идёт под блокировкой на чтение).
+    Новая ссылка дописывается в data.dat и занимает слот.
+    */
+    @Override
+    public void put(Link link) {
+        String shortCode = link.getShortCode();
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(shortCode);
+            if (slot != 0) {
+                writeNumbers(slot, link);
+                return;
+            }
+            byte[] data = encodeData(link);
+            long offset = dataEnd;
+            writeData(ByteBuffer.wrap(data));
+            insertSlot(link, offset, data.length);
+        } catch (IOException e) {
+            System.out.println("Ошибка записи ссылки: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+    Метод сохраняет пачку ссылок под одной блокировкой на запись (как и put, она исключает incrementClicks).
+    Данные новых ссылок пишутся в файл данных одной записью, а не отдельной записью на каждую ссылку.
+    */
+    @Override
+    public void putAll(Collection<Link> links) {
+        lock.writeLock().lock();
+        try {
+            Map<String, byte[]> added = new LinkedHashMap<>();
+            Map<String, Link> addedLinks = new HashMap<>();
+            int addedBytes = 0;
+            for (Link link : links) {
+                int slot = findSlot(link.getShortCode());
+                if (slot != 0) {
+                    writeNumbers(slot, link);
+                    continue;
+                }
+                byte[] data = encodeData(link);
+                byte[] previous = added.put(link.getShortCode(), data);
+                addedBytes += data.length - (previous != null ? previous.length : 0);
+                addedLinks.put(link.getShortCode(), link);
+            }
+            if (added.isEmpty()) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(addedBytes);
+            for (byte[] data : added.values()) {
+                buffer.put(data);
+            }
+            buffer.flip();
+            long offset = dataEnd;
+            writeData(buffer);
+            for (Map.Entry<String, byte[]> entry : added.entrySet()) {
+                insertSlot(addedLinks.get(entry.getKey()), offset, entry.getValue().length);
+                offset += entry.getValue().length;
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка записи пачки ссылок: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Дописывает данные в конец файла данных (под блокировкой на запись)
+    private void writeData(ByteBuffer buffer) throws IOException {
+        long offset = dataEnd;
+        while (buffer.hasRemaining()) {
+            dataChannel.write(buffer, offset + buffer.position());
+        }
+        dataEnd += buffer.limit();
+    }
+
+    // Занимает слот новой ссылки, данные которой уже записаны по смещению offset (под блокировкой на запись)
+    private void insertSlot(Link link, long offset, int length) throws IOException {
+        String shortCode = link.getShortCode();
+        int slot = allocateSlot();
+        MappedByteBuffer chunk = chunkOf(slot);
+        int base = offsetOf(slot);
+        long key = packCode(shortCode);
+        LONG.setVolatile(chunk, base + CODE_KEY, key);
+        LONG.setVolatile(chunk, base + DATA_OFFSET, offset);
+        INT.setVolatile(chunk, base + DATA_LENGTH, length);
+        writeNumbers(slot, link);
+        // Слот становится живым последним, поэтому после сбоя недописанный слот считается свободным
+        INT.setVolatile(chunk, base + STATE, STATE_LIVE);
+        indexInsert(shortCode, key, slot);
+        liveCount++;
+        BYTES_WRITTEN.add(length + SLOT_BYTES);
+    }
+
+    /*
+    Метод атомарно увеличивает счётчик переходов ссылки прямо в отображённом файле.
+    Возвращает новое значение счётчика или -1, если ссылки нет.
+    */
+    @Override
+    public long incrementClicks(String shortCode, long delta) {
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(shortCode);
+            if (slot == 0) {
+                return -1;
+            }
+            BYTES_WRITTEN.add(Long.BYTES);
+            return (long) LONG.getAndAdd(chunkOf(slot), offsetOf(slot) + CURRENT_CLICKS, delta) + delta;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+    Метод удаления ссылки: слот помечается свободным и может быть занят новой ссылкой.
+    Место в data.dat не освобождается.
+    */
+    @Override
+    public void delete(String shortCode) {
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(shortCode);
+            if (slot == 0) {
+                return;
+            }
+            indexRemove(shortCode, slot);
+            INT.setVolatile(chunkOf(slot), offsetOf(slot) + STATE, STATE_FREE);
+            pushFreeSlot(slot);
+            liveCount--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Сбрасывает изменённые страницы отображённых файлов на диск
+    @Override
+    public void flush() {
+        lock.readLock().lock();
+        try {
+            for (MappedByteBuffer chunk : chunks) {
+                chunk.force();
+            }
+            dataChannel.force(false);
+        } catch (IOException e) {
+            System.out.println("Ошибка сброса хранилища слотов: " + e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        lock.writeLock().lock();
+        try {
+            slotsChannel.close();
+            dataChannel.close();
+        } catch (IOException e) {
+            System.out.println("Ошибка закрытия хранилища слотов: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Количество живых ссылок в хранилище
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+    Метод импорта ссылок из другого хранилища (например, из папки links).
+    Возвращает число импортированных ссылок.
+    */
+    public int importFrom(LinkRepository source) {
+        int[] count = {0};
+        source.forEach(link -> {
+            put(link);
+            count[0]++;
+        });
+        flush();
+        return count[0];
+    }
+
+    /*
+    Метод восстановления при старте: проходим по слотам из заголовка,
+    живые добавляем в индекс, свободные — в список для повторного использования.
+    */
+    private void recover() throws IOException {
+        MappedByteBuffer header = chunks[0];
+        if ((long) LONG.getVolatile(header, HEADER_MAGIC) != MAGIC
+                || (long) LONG.getVolatile(header, HEADER_VERSION) != VERSION) {
+            throw new IOException("Неизвестный формат файла слотов");
+        }
+        slotCount = (int) Math.min((long) LONG.getVolatile(header, HEADER_SLOT_COUNT), (long) chunks.length * slotsPerChunk);
+        for (int slot = 1; slot < slotCount; slot++) {
+            MappedByteBuffer chunk = chunkOf(slot);
+            int base = offsetOf(slot);
+            if ((int) INT.getVolatile(chunk, base + STATE) != STATE_LIVE) {
+                pushFreeSlot(slot);
+                continue;
+            }
+            long key = (long) LONG.getVolatile(chunk, base + CODE_KEY);
+            String shortCode = key == NOT_PACKED ? readLink(slot).getShortCode() : null;
+            indexInsert(shortCode, key, slot);
+            liveCount++;
+        }
+    }
+
+    // Размер куска, с которым был создан файл (0 — файл новый)
+    private long readStoredChunkBytes() throws IOException {
+        if (slotsChannel.size() < SLOT_BYTES) {
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(SLOT_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (slotsChannel.read(header, header.position()) < 0) {
+                return 0;
+            }
+        }
+        if (header.getLong(HEADER_MAGIC) != MAGIC) {
+            throw new IOException("Неизвестный формат файла слотов");
+        }
+        return header.getLong(HEADER_CHUNK_BYTES);
+    }
+
+    private MappedByteBuffer mapChunk(int index) throws IOException {
+        return slotsChannel.map(FileChannel.MapMode.READ_WRITE, (long) index * chunkBytes, chunkBytes);
+    }
+
+    private MappedByteBuffer chunkOf(int slot) {
+        return chunks[slot / slotsPerChunk];
+    }
+
+    private int offsetOf(int slot) {
+        return (slot % slotsPerChunk) * SLOT_BYTES;
+    }
+
+    /*
+    Метод выдаёт слот для новой ссылки: сначала из освободившихся, иначе следующий по порядку.
+    Если место в отображённых кусках закончилось, файл растёт на один кусок.
+    */
+    private int allocateSlot() throws IOException {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if ((long) slotCount >= (long) chunks.length * slotsPerChunk) {
+            MappedByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[chunks.length] = mapChunk(chunks.length);
+            chunks = grown;
+        }
+        int slot = slotCount++;
+        LONG.setVolatile(chunks[0], HEADER_SLOT_COUNT, (long) slotCount);
+        return slot;
+    }
+
+    private void pushFreeSlot(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void writeNumbers(int slot, Link link) {
+        MappedByteBuffer chunk = chunkOf(slot);
+        int base = offsetOf(slot);
+        LONG.setVolatile(chunk, base + CREATE_TIME_MS, link.getCreateTimeMs());
+        LONG.setVolatile(chunk, base + TL_MINUTES, link.getTlMinutes());
+        LONG.setVolatile(chunk, base + MAX_CLICKS, link.getMaxClicks());
+        LONG.setVolatile(chunk, base + CURRENT_CLICKS, link.getCurrentClicks());
+    }
+
+    /*
+    Метод собирает ссылку: числа из слота, код, владельца и URL — из data.dat.
+    */
+    private Link readLink(int slot) throws IOException {
+        MappedByteBuffer chunk = chunkOf(slot);
+        int base = offsetOf(slot);
+        long offset = (long) LONG.getVolatile(chunk, base + DATA_OFFSET);
+        int length = (int) INT.getVolatile(chunk, base + DATA_LENGTH);
+        ByteBuffer data = ByteBuffer.allocate(length);
+        while (data.hasRemaining()) {
+            if (dataChannel.read(data, offset + data.position()) < 0) {
+                throw new IOException("Запись ссылки в data.dat обрезана");
+            }
+        }
+        data.flip();
+
+        Link link = new Link();
+        link.setShortCode(readString(data, data.get() & 0xFF));
+        link.setOwnerUuid(readString(data, data.getShort() & 0xFFFF));
+        link.setOriginalUrl(readString(data, data.getInt()));
+        link.setCreateTimeMs((long) LONG.getVolatile(chunk, base + CREATE_TIME_MS));
+        link.setTlMinutes((long) LONG.getVolatile(chunk, base + TL_MINUTES));
+        link.setMaxClicks((long) LONG.getVolatile(chunk, base + MAX_CLICKS));
+        link.setCurrentClicks((long) LONG.getVolatile(chunk, base + CURRENT_CLICKS));
+        return link;
+    }
+
+    // Запись в data.dat: код (длина 1 байт), владелец (длина 2 байта), URL (длина 4 байта), всё в UTF-8
+    private static byte[] encodeData(Link link) {
+        byte[] code = link.getShortCode().getBytes(StandardCharsets.UTF_8);
+        byte[] owner = link.getOwnerUuid().getBytes(StandardCharsets.UTF_8);
+        byte[] url = link.getOriginalUrl().getBytes(StandardCharsets.UTF_8);
+        if (code.length > 0xFF || owner.length > 0xFFFF) {
+            throw new IllegalArgumentException("Слишком длинный код или идентификатор владельца ссылки");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + code.length + 2 + owner.length + 4 + url.length);
+        buffer.put((byte) code.length).put(code);
+        buffer.putShort((short) owner.length).put(owner);
+        buffer.putInt(url.length).put(url);
+        return buffer.array();
+    }
+
+    private static String readString(ByteBuffer data, int length) {
+        String value = new String(data.array(), data.position(), length, StandardCharsets.UTF_8);
+        data.position(data.position() + length);
+        return value;
+    }
+
+    /*
+    Методы индекса кодов.
+    Код Base62 длиной до 10 символов упаковывается в long: длина в старших 4 битах, значение — в младших 60.
+    Такой ключ сравнивается прямо со слотом, без чтения data.dat и без строк в куче.
+    */
+    private static long packCode(String shortCode) {
+        int length = shortCode.length();
+        if (length == 0 || length > 10) {
+            return NOT_PACKED;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = shortCode.charAt(i);
+            int digit = c < 128 ? BASE62_DIGITS[c] : -1;
+            if (digit < 0) {
+                return NOT_PACKED;
+            }
+            value = value * 62 + digit;
+        }
+        return ((long) length << 60) | value;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private long keyOf(int slot) {
+        return (long) LONG.getVolatile(chunkOf(slot), offsetOf(slot) + CODE_KEY);
+    }
+
+    private int findSlot(String shortCode) {
+        long key = packCode(shortCode);
+        if (key == NOT_PACKED) {
+            Integer slot = overflowIndex.get(shortCode);
+            return slot == null ? 0 : slot;
+        }
+        int[] current = table;
+        int mask = current.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            int slot = current[i];
+            if (slot == 0 || keyOf(slot) == key) {
+                return slot;
+            }
+        }
+    }
+
+    private void indexInsert(String shortCode, long key, int slot) {
+        if (key == NOT_PACKED) {
+            overflowIndex.put(shortCode, slot);
+            return;
+        }
+        if ((tableEntries + 1) * 2 > table.length) {
+            int[] old = table;
+            int[] grown = new int[old.length * 2];
+            for (int existing : old) {
+                if (existing != 0) {
+                    placeInTable(grown, keyOf(existing), existing);
+                }
+            }
+            table = grown;
+        }
+        placeInTable(table, key, slot);
+        tableEntries++;
+    }
+
+    private static void placeInTable(int[] target, long key, int slot) {
+        int mask = target.length - 1;
+        int i = hash(key) & mask;
+        while (target[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        target[i] = slot;
+    }
+
+    // Удаление со сдвигом следующих элементов цепочки, без меток-надгробий
+    private void indexRemove(String shortCode, int slot) {
+        long key = keyOf(slot);
+        if (key == NOT_PACKED) {
+            overflowIndex.remove(shortCode);
+            return;
+        }
+        int mask = table.length - 1;
+        int i = hash(key) & mask;
+        while (table[i] != slot) {
+            i = (i + 1) & mask;
+        }
+        for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+            int home = hash(keyOf(table[j])) & mask;
+            // Элемент j можно перенести в дыру i, если его исходная ячейка не лежит между i и j
+            boolean between = i <= j ? (home > i && home <= j) : (home > i || home <= j);
+            if (!between) {
+                table[i] = table[j];
+                i = j;
+            }
+        }
+        table[i] = 0;
+        tableEntries--;
+    }
+}
@@ -0,0 +1,203 @@
+package program;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/*
+Файл снимка индексов сервиса (ссылок или пользователей), из которого сервис быстро
+восстанавливает состояние при запуске вместо чтения всех исходных файлов.
+
+Формат: метка типа (8 байт ASCII), версия (4 байта), данные снимка,
+длина данных (8 байт), CRC32C данных (4 байта).
+Файл пишется во временный, сбрасывается на диск и атомарно переименовывается, поэтому
+на диске всегда либо прежний, либо новый снимок целиком. Читается через отображение
+в память (mmap) окнами по 1 ГБ без копирования в кучу, поэтому размер снимка не ограничен;
+снимок с неверной меткой, длиной или суммой не используется.
+*/
+public final class SnapshotFile {
+    private static final int VERSION = 1;
+    private static final int MAGIC_BYTES = 8;
+    private static final int HEADER_BYTES = MAGIC_BYTES + Integer.BYTES;
+    private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES;
+    // Окно отображения файла при чтении и наибольшая запись, которая гарантированно в него помещается
+    private static final long WINDOW_BYTES = 1L << 30;
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    private SnapshotFile() {
+    }
+
+    /*
+    Метод записывает снимок: writer пишет данные, заголовок и контрольную сумму добавляются здесь.
+    magic — метка типа снимка из 8 символов ASCII.
+    */
+    public static void write(Path file, String magic, SnapshotWriter writer) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream raw = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            DataOutputStream header = new DataOutputStream(raw);
+            header.write(magicBytes(magic));
+            header.writeInt(VERSION);
+            DataOutputStream body = new DataOutputStream(new CheckedOutputStream(raw, crc));
+            writer.write(body);
+            body.flush();
+            long bodyLength = channel.position() - HEADER_BYTES;
+
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+            trailer.putLong(bodyLength).putInt((int) crc.getValue()).flip();
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /*
+    Метод открывает снимок для чтения. Возвращает null, если файла нет или снимок повреждён
+    (контрольная сумма проверяется здесь же, проходом по файлу).
+    */
+    public static Reader open(Path file, String magic) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            Reader reader = null;
+            try {
+                reader = check(channel, file, magic);
+                return reader;
+            } finally {
+                if (reader == null) {
+                    channel.close();
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка чтения снимка " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Проверяет метку, версию, длину и контрольную сумму снимка
+    private static Reader check(FileChannel channel, Path file, String magic) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_BYTES + TRAILER_BYTES) {
+            System.out.println("Снимок " + file + " не используется: неподходящий размер " + size);
+            return null;
+        }
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        byte[] actualMagic = new byte[MAGIC_BYTES];
+        header.get(actualMagic);
+        int version = header.getInt();
+        ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, size - TRAILER_BYTES, TRAILER_BYTES);
+        long bodyLength = trailer.getLong();
+        int expectedCrc = trailer.getInt();
+        if (!Arrays.equals(actualMagic, magicBytes(magic)) || version != VERSION
+                || bodyLength != size - HEADER_BYTES - TRAILER_BYTES) {
+            System.out.println("Снимок " + file + " не используется: неизвестный формат");
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        for (long position = 0; position < bodyLength; position += WINDOW_BYTES) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + position,
+                    Math.min(WINDOW_BYTES, bodyLength - position)));
+        }
+        if ((int) crc.getValue() != expectedCrc) {
+            System.out.println("Снимок " + file + " не используется: не сходится контрольная сумма");
+            return null;
+        }
+        return new Reader(channel, bodyLength);
+    }
+
+    // Удаляет снимок, чтобы после сбоя не прочитать устаревшее состояние
+    public static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.out.println("Ошибка удаления снимка " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Строки в снимке: длина (4 байта) + UTF-8
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Некорректная длина строки в снимке: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] magicBytes(String magic) {
+        byte[] bytes = magic.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length != MAGIC_BYTES) {
+            throw new IllegalArgumentException("Метка снимка должна быть из " + MAGIC_BYTES + " символов: " + magic);
+        }
+        return bytes;
+    }
+
+    // Запись данных снимка
+    public interface SnapshotWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /*
+    Чтение данных снимка окнами, отображёнными в память: размер снимка не ограничен 2 ГБ,
+    как у одного MappedByteBuffer. buffer() возвращает текущее окно, позиция которого —
+    следующий непрочитанный байт; читающий берёт из него одну запись и снова вызывает buffer().
+    Окно сдвигается, когда до его конца остаётся меньше MAX_RECORD_BYTES, поэтому запись
+    не длиннее MAX_RECORD_BYTES всегда лежит в окне целиком.
+    */
+    public static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final long bodyLength;
+        // Смещение начала окна от начала данных снимка
+        private long windowStart;
+        private ByteBuffer window;
+
+        private Reader(FileChannel channel, long bodyLength) throws IOException {
+            this.channel = channel;
+            this.bodyLength = bodyLength;
+            this.window = map(0);
+        }
+
+        // Остались ли непрочитанные данные
+        public boolean hasRemaining() {
+            return windowStart + window.position() < bodyLength;
+        }
+
+        public ByteBuffer buffer() throws IOException {
+            long windowEnd = windowStart + window.limit();
+            if (window.remaining() < MAX_RECORD_BYTES && windowEnd < bodyLength) {
+                window = map(windowStart + window.position());
+            }
+            return window;
+        }
+
+        private ByteBuffer map(long start) throws IOException {
+            windowStart = start;
+            return channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + start,
+                    Math.min(WINDOW_BYTES, bodyLength - start));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
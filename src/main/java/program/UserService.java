@@ -1,82 +1,168 @@
 package program;
 
 import java.io.*;
-import java.util.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 // Сервис для работы с пользователями: чтение/запись в файл, поиск и т.п.
 public class UserService {
+    // Метрики
+    private static final LatencyHistogram LOGIN_LOOKUP_LATENCY =
+            Metrics.histogram("user_lookup_seconds{by=\"login\"}", "Время поиска пользователя");
+    private static final LatencyHistogram UUID_LOOKUP_LATENCY =
+            Metrics.histogram("user_lookup_seconds{by=\"uuid\"}", "Время поиска пользователя");
+    private static final Metrics.Counter LOOKUP_HITS =
+            Metrics.counter("user_lookups_total{result=\"hit\"}", "Поиски пользователя");
+    private static final Metrics.Counter LOOKUP_MISSES =
+            Metrics.counter("user_lookups_total{result=\"miss\"}", "Поиски пользователя");
+    private static final LatencyHistogram ADD_LATENCY =
+            Metrics.histogram("user_add_seconds", "Время регистрации пользователя");
+    private static final Metrics.Counter BYTES_WRITTEN =
+            Metrics.counter("users_file_bytes_written_total", "Байты, записанные в users.txt");
+
+    // Примерный размер строки users.txt — для оценки числа пользователей по размеру файла
+    private static final int APPROX_LINE_BYTES = 60;
+    private static final String SNAPSHOT_MAGIC = "USRSNAP1";
+
     // Объявляем типы полей класса:
     private final String filePath; // путь к файлу c данными пользователей (users.txt)
-    private final List<User> users; // список пользователей, загруженных из файла для быстрого доступа
+    // Хеш-индексы пользователей: по логину в нижнем регистре и по UUID
+    private final Map<String, User> usersByLogin;
+    private final Map<String, User> usersByUuid;
+    // Поток для периодического сжатия файла
+    private final ScheduledExecutorService compactor;
+    private BufferedWriter appender;  // открытый на дозапись users.txt
+    private long fileLines;           // сколько строк сейчас в файле (включая дубликаты и битые строки)
+    private long fileBytes;           // размер users.txt в байтах
+    // Снимок индексов: при запуске читается он и только строки, дописанные в users.txt после него
+    private final Path snapshotFile;
+    private long snapshotFileBytes = -1;  // размер users.txt на момент последнего снимка
 
     /*
     Объявляем конструктор класса, который инициализирует путь к файлу,
-    создаёт пустой список пользователей и загружает существующих пользователей из файла.
+    загружает существующих пользователей (из снимка и конца файла или из всего файла)
+    и запускает периодическое сжатие файла и запись снимков.
     */
-    public UserService(String filePath) {
+    public UserService(String filePath, ConfigService configService) {
         this.filePath = filePath;
-        this.users = new ArrayList<>();
-        loadUsersFromFile();
+        this.snapshotFile = Paths.get(configService.getUserSnapshotFile());
+        int expectedUsers = (int) Math.min(Integer.MAX_VALUE, new File(filePath).length() / APPROX_LINE_BYTES + 16);
+        this.usersByLogin = new ConcurrentHashMap<>(expectedUsers);
+        this.usersByUuid = new ConcurrentHashMap<>(expectedUsers);
+        loadUsersFromFile(loadSnapshot());
+
+        long compactionIntervalMs = configService.getUsersCompactionIntervalMs();
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "users-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded, compactionIntervalMs, compactionIntervalMs, TimeUnit.MILLISECONDS);
+        long snapshotMs = configService.getSnapshotIntervalMs();
+        compactor.scheduleWithFixedDelay(this::writeSnapshot, snapshotMs, snapshotMs, TimeUnit.MILLISECONDS);
     }
 
     /*
-    Метод ищет пользователя в списке users по заданному логину, игнорируя регистр символов.
+    Метод ищет пользователя по заданному логину, игнорируя регистр символов.
     Если пользователь найден, возвращает объект User, иначе — null.
     */
     public User findByLogin(String login) {
-        for (User user : users) {
-            if (user.getLogin().equalsIgnoreCase(login)) {
-                return user;
-            }
-        }
-        return null;
+        long startNs = System.nanoTime();
+        User user = usersByLogin.get(normalizeLogin(login));
+        (user != null ? LOOKUP_HITS : LOOKUP_MISSES).increment();
+        LOGIN_LOOKUP_LATENCY.recordSince(startNs);
+        return user;
     }
 
     /*
-    Метод ищет пользователя в списке users по заданному UUID.
+    Метод ищет пользователя по заданному UUID.
     Если пользователь найден, возвращает объект User, иначе — null.
     */
     public User findByUuid(String uuid) {
-        for (User user : users) {
-            if (user.getUuid().equals(uuid)) {
-                return user;
-            }
-        }
-        return null;
+        long startNs = System.nanoTime();
+        User user = usersByUuid.get(uuid);
+        (user != null ? LOOKUP_HITS : LOOKUP_MISSES).increment();
+        UUID_LOOKUP_LATENCY.recordSince(startNs);
+        return user;
     }
 
     /*
-    Метод добавляет нового пользователя в список users и сохраняет обновлённый список в файл.
+    Метод добавляет нового пользователя в индексы и дописывает одну строку в конец файла.
+    Возвращает false, если пользователь с таким логином уже есть.
      */
-    public void addUser(User user) {
-        users.add(user);
-        saveUsersToFile();
+    public boolean addUser(User user) {
+        long startNs = System.nanoTime();
+        if (usersByLogin.putIfAbsent(normalizeLogin(user.getLogin()), user) != null) {
+            return false;
+        }
+        usersByUuid.put(user.getUuid(), user);
+        appendUserToFile(user);
+        ADD_LATENCY.recordSince(startNs);
+        return true;
+    }
+
+    // Количество пользователей
+    public int getUserCount() {
+        return usersByUuid.size();
     }
 
     /*
-    Метод загружает пользователей из файла, указанного в filePath
+    Метод останавливает сжатие и закрывает файл. Вызывается при завершении программы.
     */
+    public synchronized void close() {
+        compactor.shutdown();
+        closeAppender();
+        writeSnapshot();
+    }
 
-    private void loadUsersFromFile() {
+    /*
+    Метод загружает пользователей из файла, указанного в filePath, начиная с байта startOffset
+    (строки до него уже загружены из снимка).
+    */
+    private void loadUsersFromFile(long startOffset) {
         File file = new File(filePath);
         // Проверяем, существует ли файл
         if (!file.exists()) {
             return;
         }
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+        fileBytes = file.length();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             BufferedReader br = new BufferedReader(new InputStreamReader(
+                     Channels.newInputStream(channel.position(startOffset)), StandardCharsets.UTF_8), 1 << 20)) {
             String line;
             /*
             Читаем файл построчно в цикле
             Разделяем каждую строку по символу ";", ожидая три части: uuid, login, password.
-            Если количество частей равно 3, создаём новый объект User и добавляем его в список.
+            Разбор через indexOf не создаёт лишних массивов и регулярных выражений.
+            Если строка корректна и пользователь ещё не встречался, добавляем его в индексы.
              */
             while ((line = br.readLine()) != null) {
-                String[] arr = line.split(";");
-                if (arr.length == 3) {
-                    String uuid = arr[0];
-                    String login = arr[1];
-                    String password = arr[2];
-                    users.add(new User(uuid, login, password));
+                fileLines++;
+                int first = line.indexOf(';');
+                int second = first < 0 ? -1 : line.indexOf(';', first + 1);
+                if (second < 0 || line.indexOf(';', second + 1) >= 0) {
+                    continue;
+                }
+                String uuid = line.substring(0, first);
+                String login = line.substring(first + 1, second);
+                String password = line.substring(second + 1);
+                if (uuid.isEmpty() || login.isEmpty() || password.isEmpty() || usersByUuid.containsKey(uuid)) {
+                    continue;
+                }
+                User user = new User(uuid, login, password);
+                if (usersByLogin.putIfAbsent(normalizeLogin(login), user) == null) {
+                    usersByUuid.put(uuid, user);
                 }
             }
         } catch (IOException e) {
@@ -85,16 +171,146 @@ public class UserService {
     }
 
     /*
-    Метод сохраняет текущий список пользователей из памяти в файл, указанный в filePath.
+    Метод дописывает одного пользователя в конец файла.
      */
-    private void saveUsersToFile() {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filePath, false))) {
-            for (User user : users) {
-                bw.write(user.getUuid() + ";" + user.getLogin() + ";" + user.getPassword());
-                bw.newLine();
+    private synchronized void appendUserToFile(User user) {
+        try {
+            if (appender == null) {
+                appender = new BufferedWriter(new FileWriter(filePath, StandardCharsets.UTF_8, true));
             }
+            String line = user.getUuid() + ";" + user.getLogin() + ";" + user.getPassword();
+            appender.write(line);
+            appender.newLine();
+            appender.flush();
+            fileLines++;
+            long bytes = line.getBytes(StandardCharsets.UTF_8).length + System.lineSeparator().length();
+            fileBytes += bytes;
+            BYTES_WRITTEN.add(bytes);
         } catch (IOException e) {
             System.out.println("Ошибка записи файла users.txt: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /*
+    Метод сжатия файла: если в нём есть дубликаты или битые строки,
+    переписываем его из индекса во временный файл и атомарно подменяем.
+     */
+    private synchronized void compactIfNeeded() {
+        if (fileLines <= usersByUuid.size()) {
+            return;
+        }
+        Path target = Paths.get(filePath);
+        Path tmp = Paths.get(filePath + ".tmp");
+        try {
+            long lines = writeUsers(tmp);
+            closeAppender();
+            // Смещения в старом снимке к новому файлу не относятся
+            SnapshotFile.delete(snapshotFile);
+            snapshotFileBytes = -1;
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            fileLines = lines;
+            fileBytes = Files.size(target);
+            writeSnapshot();
+        } catch (IOException e) {
+            System.out.println("Ошибка сжатия файла users.txt: " + e.getMessage());
+        }
+    }
+
+    // Записывает всех пользователей из индекса в файл и возвращает число строк
+    private long writeUsers(Path path) throws IOException {
+        long lines = 0;
+        try (BufferedWriter bw = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (User user : usersByUuid.values()) {
+                String line = user.getUuid() + ";" + user.getLogin() + ";" + user.getPassword();
+                bw.write(line);
+                bw.newLine();
+                lines++;
+                BYTES_WRITTEN.add(line.getBytes(StandardCharsets.UTF_8).length + System.lineSeparator().length());
+            }
+        }
+        return lines;
+    }
+
+    /*
+    Метод читает снимок пользователей и возвращает размер users.txt на момент снимка —
+    с этого места файл дочитывается. Если снимка нет или он не подходит к файлу, возвращает 0.
+    */
+    private long loadSnapshot() {
+        SnapshotFile.Reader snapshot = SnapshotFile.open(snapshotFile, SNAPSHOT_MAGIC);
+        if (snapshot == null) {
+            return 0;
+        }
+        try (snapshot) {
+            ByteBuffer header = snapshot.buffer();
+            long offset = header.getLong();
+            if (offset > new File(filePath).length()) {
+                System.out.println("Снимок пользователей не используется: файл users.txt короче снимка");
+                return 0;
+            }
+            long lines = header.getLong();
+            int count = header.getInt();
+            for (int i = 0; i < count; i++) {
+                ByteBuffer record = snapshot.buffer();
+                User user = new User(SnapshotFile.readString(record),
+                        SnapshotFile.readString(record), SnapshotFile.readString(record));
+                usersByUuid.put(user.getUuid(), user);
+                usersByLogin.put(normalizeLogin(user.getLogin()), user);
+            }
+            fileLines = lines;
+            snapshotFileBytes = offset;
+            return offset;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Снимок пользователей не используется: " + e.getMessage());
+            usersByUuid.clear();
+            usersByLogin.clear();
+            return 0;
+        }
+    }
+
+    /*
+    Метод записывает снимок индексов, если файл изменился после прошлого снимка.
+    Пользователь попадает в индекс раньше, чем в файл, поэтому снимок может содержать
+    пользователей из строк после offset — при дочитывании такие строки пропускаются как повторы.
+    */
+    private synchronized void writeSnapshot() {
+        if (fileBytes == snapshotFileBytes) {
+            return;
+        }
+        long offset = fileBytes;
+        long lines = fileLines;
+        try {
+            SnapshotFile.write(snapshotFile, SNAPSHOT_MAGIC, out -> {
+                out.writeLong(offset);
+                out.writeLong(lines);
+                // Число пользователей пишем по факту: индекс может пополняться во время записи
+                List<User> users = new ArrayList<>(usersByUuid.values());
+                out.writeInt(users.size());
+                for (User user : users) {
+                    SnapshotFile.writeString(out, user.getUuid());
+                    SnapshotFile.writeString(out, user.getLogin());
+                    SnapshotFile.writeString(out, user.getPassword());
+                }
+            });
+            snapshotFileBytes = offset;
+        } catch (IOException e) {
+            System.out.println("Ошибка записи снимка пользователей: " + e.getMessage());
+        }
+    }
+
+    private void closeAppender() {
+        if (appender == null) {
+            return;
+        }
+        try {
+            appender.close();
+        } catch (IOException e) {
+            System.out.println("Ошибка закрытия файла users.txt: " + e.getMessage());
+        }
+        appender = null;
+    }
+
+    // Логины сравниваются без учёта регистра, поэтому в индексе хранятся в нижнем регистре
+    private static String normalizeLogin(String login) {
+        return login.toLowerCase(Locale.ROOT);
+    }
+}
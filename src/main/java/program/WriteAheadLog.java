@@ -0,0 +1,436 @@
+package program;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/*
+Журнал упреждающей записи (write-ahead log) изменений ссылок.
+
+Каждое изменение сначала дописывается сюда, и только после сброса журнала на диск (fsync)
+вызывающий поток продолжает работу. Сброс групповой: записи, пришедшие за окно groupCommitMs,
+записываются одним вызовом write и подтверждаются одним FileChannel.force на всех.
+
+Если запись или fsync группы завершились ошибкой, журнал переходит в состояние сбоя:
+ожидающие этой группы и все следующие записи получают исключение из awaitDurable,
+потому что после неудачного fsync нельзя утверждать, что данные на диске. Журнал снова
+принимает записи только после перезапуска программы.
+
+Журнал состоит из сегментов wal-<номер>.log. Контрольная точка (checkpoint) начинает новый сегмент;
+когда изменения из старых сегментов записаны в хранилище, старые сегменты удаляются.
+При старте оставшиеся сегменты проигрываются по порядку, оборванная последняя запись отбрасывается.
+*/
+public class WriteAheadLog {
+    private static final Metrics.Counter BYTES_WRITTEN =
+            Metrics.counter("wal_bytes_written_total", "Байты, записанные в журнал упреждающей записи");
+    private static final Metrics.Counter COMMITS =
+            Metrics.counter("wal_commits_total", "Групповые сбросы журнала на диск");
+    private static final Metrics.Counter RECORDS =
+            Metrics.counter("wal_records_total", "Записи журнала упреждающей записи");
+    private static final Metrics.Counter COMMIT_ERRORS =
+            Metrics.counter("wal_commit_errors_total", "Ошибки записи или fsync журнала упреждающей записи");
+    private static final LatencyHistogram COMMIT_LATENCY =
+            Metrics.histogram("wal_commit_seconds", "Время записи и fsync одной группы");
+
+    // Запись: тип (1 байт) + длина данных (4 байта) + данные + CRC32 (4 байта)
+    private static final int HEADER_BYTES = 5;
+    private static final int CRC_BYTES = 4;
+    private static final int MAX_PAYLOAD_BYTES = 16 * 1024 * 1024;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path folder;
+    private final long groupCommitMs;
+
+    // Накопленные, но ещё не записанные записи; защищены lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasRecords = lock.newCondition();
+    private final Condition committed = lock.newCondition();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 16);
+    private long appendedPosition;     // логическая позиция конца последней добавленной записи
+    private long durablePosition;      // всё до этой позиции сброшено на диск
+    private IOException failure;       // ошибка записи или fsync (null — журнал исправен)
+    private volatile boolean stopping;  // фоновый поток должен завершиться
+    private volatile boolean closed;    // последние записи сброшены, журнал закрыт
+
+    // Запись в файл и смена сегмента выполняются только под ioLock
+    private final ReentrantLock ioLock = new ReentrantLock();
+    private FileChannel activeChannel;
+    private long firstSegmentId;
+    private long activeSegmentId;
+    private long activeSize;
+
+    // Фоновый поток записи (null — журнал ещё не запущен)
+    private volatile Thread committer;
+
+    public WriteAheadLog(String folderPath, long groupCommitMs) {
+        this.folder = Paths.get(folderPath);
+        this.groupCommitMs = groupCommitMs;
+        try {
+            Files.createDirectories(folder);
+            List<Long> ids = listSegmentIds();
+            activeSegmentId = ids.isEmpty() ? 1 : ids.get(ids.size() - 1) + 1;
+            firstSegmentId = ids.isEmpty() ? activeSegmentId : ids.get(0);
+            activeChannel = openSegment(activeSegmentId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка открытия журнала упреждающей записи " + folderPath, e);
+        }
+    }
+
+    /*
+    Метод запускает фоновый поток записи и регистрирует показатель сбоя журнала.
+    Вызывается после создания объекта и проигрывания журнала, до первого append.
+    */
+    public void start() {
+        Metrics.gauge("wal_failed", "Журнал упреждающей записи в состоянии сбоя (1 — да)", this, wal -> wal.isFailed() ? 1 : 0);
+        committer = new Thread(this::commitLoop, "wal-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /*
+    Метод добавляет запись в журнал и возвращает её позицию для awaitDurable.
+    Сама запись на диск выполняется фоновым потоком.
+    */
+    public long append(byte type, byte[] payload) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length + CRC_BYTES);
+        record.put(type);
+        record.putInt(payload.length);
+        record.put(payload);
+        record.putInt(checksum(type, payload));
+
+        lock.lock();
+        try {
+            buffer.write(record.array(), 0, record.capacity());
+            appendedPosition += record.capacity();
+            hasRecords.signal();
+            RECORDS.increment();
+            return appendedPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+    Метод ждёт, пока запись с данной позицией будет сброшена на диск.
+    Если журнал в состоянии сбоя или закрыт раньше, чем запись попала на диск,
+    бросает UncheckedIOException: изменение не подтверждено.
+    */
+    public void awaitDurable(long position) {
+        lock.lock();
+        try {
+            while (durablePosition < position && failure == null && !closed) {
+                committed.awaitUninterruptibly();
+            }
+            if (durablePosition < position) {
+                throw new UncheckedIOException("Изменение не записано в журнал упреждающей записи",
+                        failure != null ? failure : new IOException("журнал закрыт"));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Добавляет запись и ждёт её сброса на диск
+    public void appendAndSync(byte type, byte[] payload) {
+        awaitDurable(append(type, payload));
+    }
+
+    /*
+    Метод начинает контрольную точку: сбрасывает накопленные записи, закрывает текущий сегмент
+    и открывает новый. Возвращает номер нового сегмента: все записи, добавленные до вызова,
+    лежат в сегментах с меньшими номерами. Если текущий сегмент пуст, новый не открывается.
+    */
+    public long beginCheckpoint() {
+        ioLock.lock();
+        try {
+            commitPending();
+            if (activeSize > 0) {
+                activeChannel.close();
+                activeSegmentId++;
+                activeChannel = openSegment(activeSegmentId);
+                activeSize = 0;
+            }
+            return activeSegmentId;
+        } catch (IOException e) {
+            System.out.println("Ошибка смены сегмента журнала: " + e.getMessage());
+            return activeSegmentId;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /*
+    Метод завершает контрольную точку: изменения из сегментов до segmentId уже в хранилище,
+    поэтому эти сегменты удаляются.
+    */
+    public void completeCheckpoint(long segmentId) {
+        try {
+            for (; firstSegmentId < segmentId; firstSegmentId++) {
+                Files.deleteIfExists(segmentPath(firstSegmentId));
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка удаления сегментов журнала: " + e.getMessage());
+        }
+    }
+
+    /*
+    Метод проигрывает по порядку сегменты журнала, начиная с fromSegmentId
+    (более ранние уже учтены в снимке).
+    Если последняя запись оборвана (сбой во время записи), хвост сегмента отрезается.
+    Возвращает число проигранных записей.
+    */
+    public long replay(long fromSegmentId, RecordVisitor visitor) {
+        long count = 0;
+        ioLock.lock();
+        try {
+            for (long id : listSegmentIds()) {
+                if (id < fromSegmentId || id == activeSegmentId) {
+                    continue;
+                }
+                Path path = segmentPath(id);
+                long[] records = {0};
+                long validEnd = scanSegment(path, (type, payload) -> {
+                    visitor.visit(type, payload);
+                    records[0]++;
+                });
+                count += records[0];
+                if (validEnd < Files.size(path)) {
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                        channel.truncate(validEnd);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка чтения журнала упреждающей записи: " + e.getMessage());
+        } finally {
+            ioLock.unlock();
+        }
+        return count;
+    }
+
+    // Журнал в состоянии сбоя: новые записи не подтверждаются
+    public boolean isFailed() {
+        lock.lock();
+        try {
+            return failure != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Номер самого старого сохранённого сегмента
+    public long getFirstSegmentId() {
+        return firstSegmentId;
+    }
+
+    // Номер сегмента, в который сейчас пишутся записи
+    public long getActiveSegmentId() {
+        return activeSegmentId;
+    }
+
+    /*
+    Метод останавливает фоновый поток, сбрасывает на диск все накопленные записи и только затем
+    помечает журнал закрытым: потоки, ждущие в awaitDurable, получают подтверждение записей,
+    попавших в последнюю группу, а не ошибку "журнал закрыт".
+    */
+    public void close() {
+        stopping = true;
+        lock.lock();
+        try {
+            hasRecords.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (committer != null) {
+                committer.join(TimeUnit.SECONDS.toMillis(5));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ioLock.lock();
+        try {
+            commitPending();
+            activeChannel.close();
+        } catch (IOException e) {
+            System.out.println("Ошибка закрытия журнала упреждающей записи: " + e.getMessage());
+        } finally {
+            ioLock.unlock();
+        }
+        lock.lock();
+        try {
+            closed = true;
+            committed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+    Цикл фонового потока: ждём первую запись, выдерживаем окно группировки,
+    чтобы собрать записи других потоков, и сбрасываем всю группу одним fsync.
+    */
+    private void commitLoop() {
+        while (!stopping) {
+            lock.lock();
+            try {
+                while (buffer.size() == 0 && !stopping) {
+                    hasRecords.awaitUninterruptibly();
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (stopping) {
+                return;
+            }
+            if (groupCommitMs > 0) {
+                try {
+                    Thread.sleep(groupCommitMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            ioLock.lock();
+            try {
+                commitPending();
+            } finally {
+                ioLock.unlock();
+            }
+        }
+    }
+
+    /*
+    Метод записывает накопленную группу в активный сегмент и вызывает force.
+    Позиция подтверждается только после успешного force; при ошибке журнал переходит
+    в состояние сбоя и будит ожидающих, а группа и все следующие отбрасываются:
+    дописывать сегмент после неудачной записи нельзя, проигрывание остановится на её месте.
+    Вызывается под ioLock.
+    */
+    private void commitPending() {
+        byte[] batch;
+        long batchEnd;
+        lock.lock();
+        try {
+            if (buffer.size() == 0) {
+                return;
+            }
+            if (failure != null) {
+                buffer.reset();
+                return;
+            }
+            batch = buffer.toByteArray();
+            batchEnd = appendedPosition;
+            buffer.reset();
+        } finally {
+            lock.unlock();
+        }
+
+        long startNs = System.nanoTime();
+        try {
+            ByteBuffer data = ByteBuffer.wrap(batch);
+            while (data.hasRemaining()) {
+                activeSize += activeChannel.write(data, activeSize);
+            }
+            activeChannel.force(false);
+            BYTES_WRITTEN.add(batch.length);
+            COMMITS.increment();
+        } catch (IOException e) {
+            COMMIT_ERRORS.increment();
+            System.out.println("Ошибка записи журнала упреждающей записи, изменения ссылок не подтверждаются"
+                    + " до перезапуска программы: " + e.getMessage());
+            lock.lock();
+            try {
+                failure = e;
+                buffer.reset();
+                committed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            return;
+        } finally {
+            COMMIT_LATENCY.recordSince(startNs);
+        }
+
+        lock.lock();
+        try {
+            durablePosition = batchEnd;
+            committed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private FileChannel openSegment(long segmentId) throws IOException {
+        return FileChannel.open(segmentPath(segmentId),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private Path segmentPath(long segmentId) {
+        return folder.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+    }
+
+    private List<Long> listSegmentIds() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(folder)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> ids.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    /*
+    Метод последовательно читает записи сегмента и возвращает позицию конца последней целой записи.
+    */
+    private static long scanSegment(Path path, RecordVisitor visitor) throws IOException {
+        long position = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    break;
+                }
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    if (length < 0 || length > MAX_PAYLOAD_BYTES) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    if (in.readInt() != checksum((byte) type, payload)) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                visitor.visit((byte) type, payload);
+                position += HEADER_BYTES + payload.length + CRC_BYTES;
+            }
+        }
+        return position;
+    }
+
+    private static int checksum(byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    // Обработчик записей при проигрывании журнала
+    public interface RecordVisitor {
+        void visit(byte type, byte[] payload) throws IOException;
+    }
+}
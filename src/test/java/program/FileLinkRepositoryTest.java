@@ -0,0 +1,10 @@
+package program;
+
+import java.nio.file.Path;
+
+class FileLinkRepositoryTest extends LinkRepositoryContractTest {
+    @Override
+    protected LinkRepository open(Path folder) {
+        return new FileLinkRepository(folder.resolve("links").toString());
+    }
+}
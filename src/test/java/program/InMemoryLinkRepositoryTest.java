@@ -0,0 +1,15 @@
+package program;
+
+import java.nio.file.Path;
+
+class InMemoryLinkRepositoryTest extends LinkRepositoryContractTest {
+    @Override
+    protected LinkRepository open(Path folder) {
+        return new InMemoryLinkRepository();
+    }
+
+    @Override
+    protected boolean isPersistent() {
+        return false;
+    }
+}
@@ -0,0 +1,378 @@
+package program;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+Общий контракт хранилища ссылок (LinkRepository).
+Каждая реализация проверяется одними и теми же тестами: наследник только открывает хранилище в папке.
+Проверяются чтение, запись, удаление, атомарное увеличение счётчика переходов, обходы,
+сохранность данных после закрытия и повторного открытия, а также одновременная работа из нескольких потоков.
+*/
+abstract class LinkRepositoryContractTest {
+    private static final int THREADS = 8;
+
+    @TempDir
+    Path folder;
+
+    private LinkRepository repository;
+
+    // Открывает хранилище в папке (повторное открытие в той же папке должно видеть сохранённые данные)
+    protected abstract LinkRepository open(Path folder);
+
+    // Сохраняет ли хранилище данные после закрытия (хранилище в памяти — нет)
+    protected boolean isPersistent() {
+        return true;
+    }
+
+    @BeforeEach
+    void openRepository() {
+        repository = open(folder);
+    }
+
+    @AfterEach
+    void closeRepository() {
+        repository.close();
+    }
+
+    @Test
+    void getReturnsNullForUnknownCode() {
+        assertNull(repository.get("nothing"));
+    }
+
+    @Test
+    void getReturnsStoredFields() {
+        Link link = link("abc123", UUID.randomUUID().toString(), "https://example.com/путь?q=1", 60, 10);
+        link.setCurrentClicks(3);
+        repository.put(link);
+
+        assertSameLink(link, repository.get("abc123"));
+    }
+
+    @Test
+    void ownerThatIsNotUuidIsStored() {
+        Link link = link("own1", "не-uuid владелец", "https://example.com", 60, 10);
+        repository.put(link);
+
+        assertSameLink(link, repository.get("own1"));
+    }
+
+    @Test
+    void putReplacesStoredState() {
+        Link link = link("abc123", UUID.randomUUID().toString(), "https://example.com", 60, 10);
+        repository.put(link);
+        link.setMaxClicks(50);
+        link.setCurrentClicks(7);
+        repository.put(link);
+
+        Link stored = repository.get("abc123");
+        assertEquals(50, stored.getMaxClicks());
+        assertEquals(7, stored.getCurrentClicks());
+    }
+
+    @Test
+    void changesAfterPutAreNotVisibleUntilNextPut() {
+        Link link = link("abc123", UUID.randomUUID().toString(), "https://example.com", 60, 10);
+        repository.put(link);
+        link.setCurrentClicks(9);
+
+        assertEquals(0, repository.get("abc123").getCurrentClicks());
+    }
+
+    @Test
+    void deleteRemovesLink() {
+        repository.put(link("abc123", UUID.randomUUID().toString(), "https://example.com", 60, 10));
+        repository.delete("abc123");
+
+        assertNull(repository.get("abc123"));
+        assertEquals(-1, repository.incrementClicks("abc123", 1));
+        assertTrue(codes(repository).isEmpty());
+    }
+
+    @Test
+    void deleteOfUnknownCodeIsIgnored() {
+        repository.delete("nothing");
+
+        assertNull(repository.get("nothing"));
+    }
+
+    @Test
+    void linkCanBeStoredAgainAfterDelete() {
+        String owner = UUID.randomUUID().toString();
+        repository.put(link("abc123", owner, "https://example.com/old", 60, 10));
+        repository.delete("abc123");
+        Link link = link("abc123", owner, "https://example.com/new", 60, 20);
+        repository.put(link);
+
+        assertSameLink(link, repository.get("abc123"));
+    }
+
+    @Test
+    void putAllStoresNewAndChangedLinks() {
+        String owner = UUID.randomUUID().toString();
+        Link existing = link("old", owner, "https://example.com/old", 60, 10);
+        repository.put(existing);
+        existing.setCurrentClicks(4);
+        List<Link> batch = new ArrayList<>();
+        batch.add(existing);
+        // Пачка больше буферов и сегментов хранилищ, чтобы запись шла несколькими частями
+        for (int i = 0; i < 3000; i++) {
+            batch.add(link("b" + i, owner, "https://example.com/batch/" + i + "/" + "x".repeat(100), 60, 10));
+        }
+        repository.putAll(batch);
+
+        assertSameLink(existing, repository.get("old"));
+        for (Link link : batch) {
+            assertSameLink(link, repository.get(link.getShortCode()));
+        }
+        assertEquals(3001, codes(repository).size());
+        assertEquals(5, repository.incrementClicks("old", 1));
+    }
+
+    @Test
+    void reopenedRepositoryKeepsBatch() {
+        assumeTrue(isPersistent(), "хранилище не сохраняет данные после закрытия");
+        List<Link> batch = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            batch.add(link("b" + i, UUID.randomUUID().toString(), "https://example.com/" + i, 60, 10));
+        }
+        repository.putAll(batch);
+        repository.flush();
+        repository.close();
+
+        repository = open(folder);
+        for (Link link : batch) {
+            assertSameLink(link, repository.get(link.getShortCode()));
+        }
+    }
+
+    @Test
+    void incrementClicksReturnsNewValue() {
+        Link link = link("abc123", UUID.randomUUID().toString(), "https://example.com", 60, 100);
+        link.setCurrentClicks(5);
+        repository.put(link);
+
+        assertEquals(6, repository.incrementClicks("abc123", 1));
+        assertEquals(10, repository.incrementClicks("abc123", 4));
+        assertEquals(10, repository.get("abc123").getCurrentClicks());
+    }
+
+    @Test
+    void incrementClicksOfUnknownCodeReturnsMinusOne() {
+        assertEquals(-1, repository.incrementClicks("nothing", 1));
+    }
+
+    @Test
+    void forEachVisitsEveryLinkOnce() {
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            repository.put(link("code" + i, UUID.randomUUID().toString(), "https://example.com/" + i, 60, 10));
+            expected.add("code" + i);
+        }
+        repository.delete("code7");
+        expected.remove("code7");
+
+        List<String> visited = new ArrayList<>();
+        repository.forEach(link -> visited.add(link.getShortCode()));
+        assertEquals(expected.size(), visited.size());
+        assertEquals(expected, new HashSet<>(visited));
+    }
+
+    @Test
+    void forEachByOwnerVisitsOnlyOwnerLinks() {
+        String owner = UUID.randomUUID().toString();
+        String other = UUID.randomUUID().toString();
+        repository.put(link("a1", owner, "https://example.com/1", 60, 10));
+        repository.put(link("a2", owner, "https://example.com/2", 60, 10));
+        repository.put(link("b1", other, "https://example.com/3", 60, 10));
+        repository.delete("a2");
+
+        Set<String> visited = new HashSet<>();
+        repository.forEachByOwner(owner, link -> visited.add(link.getShortCode()));
+        assertEquals(Set.of("a1"), visited);
+    }
+
+    @Test
+    void forEachExpiredVisitsOnlyExpiredLinks() {
+        long nowMs = System.currentTimeMillis();
+        Link expired = link("old", UUID.randomUUID().toString(), "https://example.com/old", 1, 10);
+        expired.setCreateTimeMs(nowMs - 120_000);
+        repository.put(expired);
+        repository.put(link("new", UUID.randomUUID().toString(), "https://example.com/new", 60, 10));
+
+        Set<String> visited = new HashSet<>();
+        repository.forEachExpired(nowMs, link -> visited.add(link.getShortCode()));
+        assertEquals(Set.of("old"), visited);
+    }
+
+    @Test
+    void reopenedRepositoryKeepsChanges() {
+        assumeTrue(isPersistent(), "хранилище не сохраняет данные после закрытия");
+        String owner = UUID.randomUUID().toString();
+        Link kept = link("kept", owner, "https://example.com/kept", 60, 10);
+        repository.put(kept);
+        Link edited = link("edited", owner, "https://example.com/edited", 60, 10);
+        repository.put(edited);
+        edited.setMaxClicks(30);
+        edited.setCurrentClicks(2);
+        repository.put(edited);
+        repository.put(link("deleted", owner, "https://example.com/deleted", 60, 10));
+        repository.delete("deleted");
+        repository.incrementClicks("kept", 3);
+        kept.setCurrentClicks(3);
+        repository.flush();
+        repository.close();
+
+        repository = open(folder);
+        assertSameLink(kept, repository.get("kept"));
+        assertSameLink(edited, repository.get("edited"));
+        assertNull(repository.get("deleted"));
+        assertEquals(Set.of("kept", "edited"), codes(repository));
+        Set<String> owned = new HashSet<>();
+        repository.forEachByOwner(owner, link -> owned.add(link.getShortCode()));
+        assertEquals(Set.of("kept", "edited"), owned);
+    }
+
+    @Test
+    void concurrentIncrementsAreNotLost() throws Exception {
+        repository.put(link("hot", UUID.randomUUID().toString(), "https://example.com", 60, Long.MAX_VALUE));
+        int perThread = 2000;
+        Set<Long> returned = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < perThread; i++) {
+                returned.add(repository.incrementClicks("hot", 1));
+            }
+        });
+
+        // Каждое увеличение вернуло своё значение: ни одно не потерялось и не совпало с другим
+        assertEquals(THREADS * perThread, returned.size());
+        assertEquals(THREADS * perThread, repository.get("hot").getCurrentClicks());
+    }
+
+    @Test
+    void concurrentWritesOfDifferentLinksAreAllStored() throws Exception {
+        int perThread = 200;
+        runConcurrently(thread -> {
+            String owner = UUID.randomUUID().toString();
+            for (int i = 0; i < perThread; i++) {
+                String shortCode = "t" + thread + "-" + i;
+                repository.put(link(shortCode, owner, "https://example.com/" + shortCode, 60, 10));
+                repository.incrementClicks(shortCode, 2);
+                if (i % 10 == 0) {
+                    repository.delete(shortCode);
+                }
+            }
+        });
+
+        Map<String, Long> clicks = new HashMap<>();
+        repository.forEach(link -> clicks.put(link.getShortCode(), link.getCurrentClicks()));
+        assertEquals(THREADS * (perThread - perThread / 10), clicks.size());
+        for (long value : clicks.values()) {
+            assertEquals(2, value);
+        }
+    }
+
+    @Test
+    void readsDuringWritesSeeWholeLinks() throws Exception {
+        String owner = UUID.randomUUID().toString();
+        for (int i = 0; i < 50; i++) {
+            repository.put(link("r" + i, owner, "https://example.com/" + i, 60, 10));
+        }
+        runConcurrently(thread -> {
+            for (int round = 0; round < 200; round++) {
+                String shortCode = "r" + (round % 50);
+                if (thread % 2 == 0) {
+                    repository.incrementClicks(shortCode, 1);
+                } else {
+                    Link link = repository.get(shortCode);
+                    assertNotNull(link);
+                    assertEquals(owner, link.getOwnerUuid());
+                    assertEquals("https://example.com/" + (round % 50), link.getOriginalUrl());
+                }
+            }
+        });
+
+        long total = 0;
+        for (int i = 0; i < 50; i++) {
+            total += repository.get("r" + i).getCurrentClicks();
+        }
+        assertEquals(THREADS / 2 * 200, total);
+    }
+
+    protected interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+
+    // Запускает тело в нескольких потоках одновременно и пробрасывает первую ошибку
+    private static void runConcurrently(ThreadBody body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    body.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Set<String> codes(LinkRepository repository) {
+        Set<String> codes = new HashSet<>();
+        repository.forEach(link -> codes.add(link.getShortCode()));
+        return codes;
+    }
+
+    private static Link link(String shortCode, String ownerUuid, String url, long tlMinutes, long maxClicks) {
+        Link link = new Link();
+        link.setShortCode(shortCode);
+        link.setOwnerUuid(ownerUuid);
+        link.setOriginalUrl(url);
+        link.setCreateTimeMs(System.currentTimeMillis());
+        link.setTlMinutes(tlMinutes);
+        link.setMaxClicks(maxClicks);
+        return link;
+    }
+
+    private static void assertSameLink(Link expected, Link actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getShortCode(), actual.getShortCode());
+        assertEquals(expected.getOwnerUuid(), actual.getOwnerUuid());
+        assertEquals(expected.getOriginalUrl(), actual.getOriginalUrl());
+        assertEquals(expected.getCreateTimeMs(), actual.getCreateTimeMs());
+        assertEquals(expected.getTlMinutes(), actual.getTlMinutes());
+        assertEquals(expected.getMaxClicks(), actual.getMaxClicks());
+        assertEquals(expected.getCurrentClicks(), actual.getCurrentClicks());
+    }
+}
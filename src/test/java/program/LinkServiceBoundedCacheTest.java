@@ -0,0 +1,125 @@
+package program;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+LinkService с ограниченным кешем: ссылки вытесняются и перечитываются из хранилища во время переходов,
+и ни переходы, ни изменения лимита при этом не должны теряться.
+*/
+class LinkServiceBoundedCacheTest {
+    private static final int LINKS = 300;
+    private static final int THREADS = 4;
+    private static final int CLICKS_PER_THREAD = 5000;
+
+    @TempDir
+    Path folder;
+
+    private ConfigService configService;
+    private LinkService linkService;
+
+    @BeforeEach
+    void openService() throws IOException {
+        Path config = folder.resolve("config.txt");
+        Files.writeString(config, String.join("\n",
+                "CACHE_MAX_BYTES=20000",
+                "WRITE_BEHIND_FLUSH_MS=5",
+                "WAL_ENABLED=false",
+                "ANALYTICS_ENABLED=false",
+                "LINK_SNAPSHOT_FILE=" + folder.resolve("links.snapshot"),
+                "BLOOM_FILTER_FILE=" + folder.resolve("links.bloom")));
+        configService = new ConfigService(config.toString());
+        linkService = new LinkService(new SlotLinkRepository(folder.resolve("slots").toString(), 1 << 20), configService);
+        linkService.start();
+    }
+
+    @AfterEach
+    void closeService() {
+        linkService.close();
+    }
+
+    @Test
+    void limitEditOnStaleCopyKeepsConcurrentClicks() throws Exception {
+        List<String> codes = createLinks();
+        String edited = codes.get(0);
+        // Копия, которую держит пользователь, пока ссылку вытесняют и перечитывают
+        Link stale = linkService.loadLink(edited);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < CLICKS_PER_THREAD; i++) {
+                        String shortCode = i % 4 == 0 ? edited : codes.get(ThreadLocalRandom.current().nextInt(LINKS));
+                        assertEquals(ClickStatus.OK, linkService.registerClick(linkService.loadLink(shortCode)));
+                    }
+                }));
+            }
+            for (int i = 0; i < 20; i++) {
+                Thread.sleep(5);
+                assertNotNull(linkService.editLinkLimit(stale, 1_000_000 + i, 1));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long total = 0;
+        for (String shortCode : codes) {
+            total += linkService.loadLink(shortCode).getCurrentClicks();
+        }
+        assertEquals((long) THREADS * CLICKS_PER_THREAD, total);
+        assertEquals(1_000_019, linkService.loadLink(edited).getMaxClicks());
+
+        // После перезапуска из хранилища читаются те же значения
+        linkService.close();
+        Files.deleteIfExists(folder.resolve("links.snapshot"));
+        linkService = new LinkService(new SlotLinkRepository(folder.resolve("slots").toString(), 1 << 20), configService);
+        linkService.start();
+        long stored = 0;
+        for (String shortCode : codes) {
+            stored += linkService.loadLink(shortCode).getCurrentClicks();
+        }
+        assertEquals(total, stored);
+        assertEquals(1_000_019, linkService.loadLink(edited).getMaxClicks());
+    }
+
+    @Test
+    void limitEditOfDeletedLinkDoesNotRecreateIt() {
+        List<String> codes = createLinks();
+        Link stale = linkService.loadLink(codes.get(0));
+        linkService.deleteLink(codes.get(0));
+        linkService.flush();
+
+        assertNull(linkService.editLinkLimit(stale, 50, 1));
+        assertNull(linkService.loadLink(codes.get(0)));
+        assertEquals(LINKS - 1, linkService.findByOwner("owner").size());
+    }
+
+    private List<String> createLinks() {
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < LINKS; i++) {
+            codes.add(linkService.createLink("owner", "https://example.com/" + i, 60, 60, 1_000_000, 1).getShortCode());
+        }
+        linkService.flush();
+        return codes;
+    }
+}
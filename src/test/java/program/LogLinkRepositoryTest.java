@@ -0,0 +1,11 @@
+package program;
+
+import java.nio.file.Path;
+
+class LogLinkRepositoryTest extends LinkRepositoryContractTest {
+    @Override
+    protected LinkRepository open(Path folder) {
+        // Маленькие сегменты, чтобы записи переходили через границу сегмента
+        return new LogLinkRepository(folder.resolve("log").toString(), 64 * 1024, 60_000);
+    }
+}
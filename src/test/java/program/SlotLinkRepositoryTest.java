@@ -0,0 +1,11 @@
+package program;
+
+import java.nio.file.Path;
+
+class SlotLinkRepositoryTest extends LinkRepositoryContractTest {
+    @Override
+    protected LinkRepository open(Path folder) {
+        // Маленькие куски файла, чтобы хранилище расширялось во время тестов
+        return new SlotLinkRepository(folder.resolve("slots").toString(), 64 * 1024);
+    }
+}